@@ -2,6 +2,7 @@ package App;
 
 import board.Board;
 import board.GameLogicController;
+import board.Position;
 import pieces.PieceAttributes;
 
 import javax.swing.*;
@@ -19,7 +20,7 @@ public class ChessApp extends JPanel{
 
     private static final ChessMoveOrderModel m_moveOrderModel = new ChessMoveOrderModel();
 
-    private static final Board m_board = new Board("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+    private static final Board m_board = new Board(Position.START_POSITION);
 
     public static JButton m_playWithFriendButton;
     public static JButton m_singlePlayerMode;
@@ -146,7 +147,8 @@ public class ChessApp extends JPanel{
                 if(result.getTimePerSide() != -1){
                     m_moveOrderModel.setRowCount(0);
                     m_board.createOnePlayerGame(result.getTimePerSide(), result.getIncrementPerMove(),
-                                                result.getPlayerColor(), result.getDepth());
+                                                result.getPlayerColor(), result.getDepth(), result.getThreads(),
+                                                result.getHashSize(), result.isDeterministic());
                 }
             }
         }
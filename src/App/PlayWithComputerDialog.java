@@ -22,6 +22,11 @@ public class PlayWithComputerDialog extends JDialog{
     private JPanel colorPanel;
     private JSlider depthSlider;
     private JLabel depthLabel;
+    private JSlider threadsSlider;
+    private JLabel threadsLabel;
+    private JSlider hashSlider;
+    private JLabel hashLabel;
+    private JCheckBox deterministicCheckBox;
     private JToggleButton whiteColorButton;
     private JToggleButton blackColorButton;
     private JToggleButton randomColorButton;
@@ -74,6 +79,18 @@ public class PlayWithComputerDialog extends JDialog{
             depthLabel.setText("Depth: " + value);
         });
 
+        threadsSlider.setMaximum(Runtime.getRuntime().availableProcessors());
+        deterministicCheckBox.setFocusPainted(false);
+        threadsSlider.addChangeListener(e -> {
+            int value = threadsSlider.getValue();
+            threadsLabel.setText("Threads: " + value);
+        });
+
+        // Slider picks a power of two, table sizes are rounded down to one anyway
+        hashSlider.addChangeListener(e -> {
+            hashLabel.setText("Hash: " + getHashSize() + " MB");
+        });
+
 
         timePanel.setVisible(false);
     }
@@ -118,6 +135,8 @@ public class PlayWithComputerDialog extends JDialog{
     }
 
 
+    private int getHashSize(){return 1 << hashSlider.getValue();}
+
     private void onOK(){
         // Check if there is a time control
         int playTimeValue = 0, incrementValue = 0;
@@ -127,16 +146,18 @@ public class PlayWithComputerDialog extends JDialog{
         }
 
         int depth = depthSlider.getValue();
+        int threads = threadsSlider.getValue();
+        boolean isDeterministic = deterministicCheckBox.isSelected();
         // Get selected color value, if no color is selected choose randomly
         if(whiteColorButton.isSelected()){
             m_result = new Result(playTimeValue, incrementValue, PieceAttributes.Color.WHITE,
-                                  depth);
+                                  depth, threads, getHashSize(), isDeterministic);
         }else if(blackColorButton.isSelected())
             m_result = new Result(playTimeValue, incrementValue, PieceAttributes.Color.BLACK,
-                                  depth);
+                                  depth, threads, getHashSize(), isDeterministic);
         else
             m_result = new Result(playTimeValue, incrementValue, PieceAttributes.Color.randomColor(),
-                                  depth);
+                                  depth, threads, getHashSize(), isDeterministic);
         dispose();
     }
 
@@ -145,7 +166,7 @@ public class PlayWithComputerDialog extends JDialog{
 
         // add your code here if necessary
         m_result = new Result(-1, -1, PieceAttributes.Color.BLACK,
-                              -1);
+                              -1, -1, -1, false);
         dispose();
     }
 
@@ -160,12 +181,19 @@ public class PlayWithComputerDialog extends JDialog{
         private final int m_incrementPerMove;
         private final PieceAttributes.Color m_playerColor;
         private final int m_depth;
+        private final int m_threads;
+        private final int m_hashSize;
+        private final boolean m_isDeterministic;
 
-        public Result(int timePerSide, int incrementPerMove, PieceAttributes.Color playerColor, int depth){
+        public Result(int timePerSide, int incrementPerMove, PieceAttributes.Color playerColor, int depth,
+                      int threads, int hashSize, boolean isDeterministic){
             m_timePerSide = timePerSide;
             m_incrementPerMove = incrementPerMove;
             m_playerColor = playerColor;
             m_depth = depth;
+            m_threads = threads;
+            m_hashSize = hashSize;
+            m_isDeterministic = isDeterministic;
         }
 
 
@@ -177,6 +205,13 @@ public class PlayWithComputerDialog extends JDialog{
 
         public int getDepth(){return m_depth;}
 
+        public int getThreads(){return m_threads;}
+
+        /** Returns memory used by the engine transposition table in megabytes */
+        public int getHashSize(){return m_hashSize;}
+
+        public boolean isDeterministic(){return m_isDeterministic;}
+
 
     }
 
@@ -99,4 +99,14 @@ public class Timer{
     }
 
     public boolean isRunning(){return m_timer.isRunning();}
+
+    /** Returns time left on the clock in milliseconds */
+    public long getRemainingTime(){
+        if(m_hasFinished)
+            return 0;
+        return (m_minutes * 60L + m_seconds) * 1000 + m_miliseconds;
+    }
+
+    /** Returns time added after every move in milliseconds */
+    public long getIncrement(){return m_incrementValue * 1000;}
 }
@@ -0,0 +1,37 @@
+package board;
+
+/** One of the best root moves found by <code>SearchController.analyze</code>, with its score and expected line */
+public class AnalysisLine{
+
+    /**
+     * @param depth              depth the line has been searched to
+     * @param score              score from the point of view of the side to move at the root
+     * @param principalVariation root move followed by the moves both sides are expected to play
+     */
+    public AnalysisLine(int depth, int score, int[] principalVariation){
+        m_depth = depth;
+        m_score = score;
+        m_principalVariation = principalVariation;
+    }
+
+    public int getDepth(){return m_depth;}
+
+    public int getScore(){return m_score;}
+
+    public int getMove(){return m_principalVariation[0];}
+
+    public int[] getPrincipalVariation(){return m_principalVariation.clone();}
+
+    /** Returns the line in coordinate notation, for example <code>depth 5 score 35 pv e2e4 e7e5 g1f3</code> */
+    @Override
+    public String toString(){
+        StringBuilder line = new StringBuilder("depth " + m_depth + " score " + m_score + " pv");
+        for(int move : m_principalVariation)
+            line.append(' ').append(Position.toNotation(move));
+        return line.toString();
+    }
+
+    private final int m_depth;
+    private final int m_score;
+    private final int[] m_principalVariation;
+}
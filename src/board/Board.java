@@ -14,7 +14,7 @@ public class Board extends JPanel{
     /** Handles game state, moves and position evaluation */
     private final GameLogicController m_logicController;
     /** Position that will be loaded if given position was invalid */
-    private final String m_standardFeNotation = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    private final String m_standardFeNotation = Position.START_POSITION;
     //private final String m_standardFeNotation = "8/8/8/7k/5P2/7K/8/R7 w - - 0 1";
     private SoundPlayer m_moveSound;
     private SoundPlayer m_captureSound;
@@ -366,6 +366,11 @@ public class Board extends JPanel{
         this.add(component, gbc);
     }
 
+    /** Returns Zobrist key of the current position */
+    public long getZobristKey(){
+        return m_logicController.getZobristKey();
+    }
+
     public GameLogicController.GameState getResult(){
         return m_logicController.m_gameState;
     }
@@ -388,7 +393,7 @@ public class Board extends JPanel{
 
     public void createOnePlayerGame(int timePerSide, int incrementPerMove,
                                     PieceAttributes.Color playerColor,
-                                    int depth){
+                                    int depth, int threads, int hashSizeInMegabytes, boolean isDeterministic){
         // Remove pieces from the previous game
         for(int i = 0; i < 8; ++i){
             for(int j = 0; j < 8; ++j){
@@ -397,7 +402,8 @@ public class Board extends JPanel{
         }
         readFromFENotation(m_standardFeNotation);
         m_logicController.setPlayerColor(playerColor);
-        m_logicController.setEngineAttribs(depth);
+        m_logicController.setEngineAttribs(depth, threads, isDeterministic);
+        m_logicController.setTranspositionTableSize(hashSizeInMegabytes);
         m_logicController.startLogic(timePerSide, incrementPerMove, GameLogicController.GameType.SINGLE);
         m_gameStartSound.play();
     }
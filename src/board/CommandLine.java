@@ -0,0 +1,50 @@
+package board;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Arguments of the command line tools, numeric options <code>-name value</code> followed by positional arguments.
+ * A position is given as FEN at the end, split by the shell into several arguments.
+ */
+class CommandLine{
+
+    /**
+     * @param args        arguments of <code>main</code>
+     * @param optionNames options the tool accepts, any other option is an error
+     */
+    CommandLine(String[] args, String... optionNames){
+        List<String> knownOptions = Arrays.asList(optionNames);
+        int first = 0;
+        while(first + 1 < args.length && args[first].startsWith("-")){
+            if(!knownOptions.contains(args[first]))
+                throw new IllegalArgumentException("Unknown option: " + args[first]);
+            m_options.put(args[first], Integer.parseInt(args[first + 1]));
+            first += 2;
+        }
+        m_arguments = Arrays.copyOfRange(args, first, args.length);
+    }
+
+    /** Returns value of given option or the default if the option is not given */
+    int getOption(String name, int defaultValue){
+        return m_options.getOrDefault(name, defaultValue);
+    }
+
+    /** Returns number of arguments after the options */
+    int getArgumentCount(){return m_arguments.length;}
+
+    /** Returns argument at given index, counted after the options */
+    String getArgument(int index){return m_arguments[index];}
+
+    /** Returns FEN made of all arguments from given index, start position if there are none */
+    String getFeNotation(int first){
+        return first < m_arguments.length ? String.join(" ", Arrays.copyOfRange(m_arguments, first,
+                                                                                 m_arguments.length))
+                : Position.START_POSITION;
+    }
+
+    private final Map<String, Integer> m_options = new HashMap<>();
+    private final String[] m_arguments;
+}
@@ -8,8 +8,13 @@ import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class GameLogicController implements ActionListener{
+    /** Size of the engine pawn hash table in megabytes */
+    private static final int PAWN_HASH_TABLE_SIZE = 2;
+
     /** Contains game board given as a parameter in constructor */
     private final Board m_board;
     /** Stores pieces that can move and positions to move to */
@@ -31,18 +36,40 @@ public class GameLogicController implements ActionListener{
     private final App.Timer m_blackTimer = new App.Timer(0, 0);
     /** True if game is still in progress or it's player's move */
     private boolean m_canPlay = false;
-    /** True if future moves are calculated */
-    private boolean m_isPseudoMoving = false;
     /** Max depth of minmax search algorithm */
     private int m_engineDepth = 0;
-    /** Pseudo <a href="https://en.wikipedia.org/wiki/Transposition_table">transposition table</a> */
-    private GameStateCache m_cache;
+    /** Number of threads the engine searches with */
+    private int m_engineThreads = 1;
+    /** True if engine threads split root moves, so the same position always gives the same move */
+    private boolean m_isEngineDeterministic = false;
+    /** True if players have limited time, engine then searches as deep as its clock allows */
+    private boolean m_isTimedGame = false;
+    /** Size of the engine transposition table in megabytes */
+    private int m_transpositionTableSize = 64;
+    /** <a href="https://en.wikipedia.org/wiki/Transposition_table">Transposition table</a> kept for a whole game */
+    private TranspositionTable m_transpositionTable;
+    /** Pawn structure scores of the engine, they don't depend on the game so the table is never cleared */
+    private final PawnHashTable m_pawnHashTable = new PawnHashTable(PAWN_HASH_TABLE_SIZE);
+    /** Runs engine searches so Swing thread and timers are not blocked while the engine thinks */
+    private final ExecutorService m_engineExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Engine search");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /** Search that is currently running, null if engine is not thinking */
+    private SearchController m_engineSearch;
     /** Counter for moves with no capture or no pawn moves */
     protected int m_halfMoves = 0;
     /** Counter for all moves, incremented after black move */
     protected int m_fullMoves = 1;
     /** Winning color of game */
     protected PieceAttributes.Color m_winningColor = PieceAttributes.Color.NONE;
+    /** Zobrist key of the current position, updated with every move made on the board */
+    private long m_zobristKey = 0L;
+    /** Zobrist keys of all positions of the game so far, the current one is the last */
+    private final ArrayList<Long> m_gameKeys = new ArrayList<>();
+    /** Square behind a pawn that has just moved two squares, -1 if there is none */
+    private int m_enpassantSquare = -1;
 
     /**
      * @param board object of class Board that contains a current chess board position
@@ -60,6 +87,7 @@ public class GameLogicController implements ActionListener{
      * @param gameType         game type (none, single, multi, analyze)
      */
     public void startLogic(int timePerSide, int incrementPerMove, GameType gameType){
+        stopEngineSearch();
         unselectPossibleMoves();
         m_fullMoves = 1;
         m_halfMoves = 0;
@@ -68,52 +96,39 @@ public class GameLogicController implements ActionListener{
         m_whiteTimer.setNewValues(timePerSide, incrementPerMove);
         m_blackTimer.setNewValues(timePerSide, incrementPerMove);
         m_isCastling = false;
-        m_isPseudoMoving = false;
         m_canPlay = true;
         m_colorToMove = PieceAttributes.Color.WHITE;
+        Position startPosition = new Position(m_board.generateFENotation());
+        m_zobristKey = startPosition.getZobristKey();
+        m_gameKeys.clear();
+        m_gameKeys.add(m_zobristKey);
+        m_enpassantSquare = startPosition.getEnpassantSquare();
         m_gameType = gameType;
-        m_cache = new GameStateCache();
+        if(gameType == GameType.SINGLE){
+            if(m_transpositionTable == null)
+                m_transpositionTable = new TranspositionTable(m_transpositionTableSize);
+            else m_transpositionTable.clear();
+        }
         handleGameState();
 
-        if(timePerSide == 0 && gameType == GameType.SINGLE){
+        m_isTimedGame = timePerSide != 0;
+        if(!m_isTimedGame && gameType == GameType.SINGLE){
             m_whiteTimer.setNewValues(0, 0);
             m_blackTimer.setNewValues(0, 0);
             m_whiteTimer.stop();
             m_blackTimer.stop();
             m_gameTimer.stop();
-        }else if(timePerSide != 0)
-            if(gameType == GameType.SINGLE && m_playerColor == PieceAttributes.Color.BLACK){
-                m_whiteTimer.setNewValues(0, 0);
-                m_whiteTimer.start();
-                m_whiteTimer.stop();
-                m_blackTimer.start();
-            }else if(gameType == GameType.SINGLE && m_playerColor == PieceAttributes.Color.WHITE){
-                m_blackTimer.setNewValues(0, 0);
-                m_blackTimer.start();
-                m_blackTimer.stop();
-                m_whiteTimer.start();
-            }else{
-                m_blackTimer.start();
-                m_blackTimer.stop();
-                m_whiteTimer.stop();
-                m_whiteTimer.start();
-            }
+        }else if(m_isTimedGame){
+            // Engine plays on its own clock as well
+            m_blackTimer.start();
+            m_blackTimer.stop();
+            m_whiteTimer.stop();
+            m_whiteTimer.start();
+        }
         m_gameTimer.start();
 
-        if(m_gameType == GameType.SINGLE && m_colorToMove != m_playerColor){
-            m_isPseudoMoving = true;
+        if(m_gameType == GameType.SINGLE && m_colorToMove != m_playerColor)
             makeBestMove();
-            m_isPseudoMoving = false;
-            handleGameState();
-        }
-        long start = System.currentTimeMillis();
-        isCheckedCalled = 0;
-        //System.out.println("Moves: " + generateMoves(5));
-        long end = System.currentTimeMillis();
-        System.out.println("Time passed: " + (end - start));
-        System.out.println(isCheckedCalled);
-        System.out.println(possibleMovesCalled);
-        //handleGameState();
     }
 
 
@@ -131,11 +146,14 @@ public class GameLogicController implements ActionListener{
             message = "BLACK WON!";
         }else if(checkForInsufficientMaterial()){
             message = "DRAW BY INSUFFICIENT MATERIAL!";
+        }else if(isThreefoldRepetition()){
+            message = "DRAW BY REPETITION!";
         }else if(m_gameState == GameState.STALEMATE){
             message = "DRAW BY STALEMATE!";
         }
 
         m_canPlay = false;
+        stopEngineSearch();
         m_blackTimer.stop();
         m_whiteTimer.stop();
         m_gameTimer.stop();
@@ -187,6 +205,8 @@ public class GameLogicController implements ActionListener{
         }
     }
 
+    public long getZobristKey(){return m_zobristKey;}
+
     public App.Timer getWhiteTimer(){return m_whiteTimer;}
 
     public App.Timer getBlackTimer(){return m_blackTimer;}
@@ -210,36 +230,30 @@ public class GameLogicController implements ActionListener{
         }else{
             // Executed when piece has already been clicked on and waits for a move
             Piece pieceWaitingToMove = m_boardSquareClicked.getPiece();
-            ArrayList<Pos> possibleMoves = pieceWaitingToMove.calculatePossibleMoves(m_board.m_boardSquares);
 
             Pos pos = new Pos(squareClicked.getPos().row(), squareClicked.getPos().col());
             // Check if clicked square is selected for possible move
-            if(possibleMoves.contains(pos)){
-                if(m_piecesToMove.contains(new Pair<>(pieceWaitingToMove, pos)))
-                    movePiece(m_boardSquareClicked.getPiece(), m_boardSquareClicked, squareClicked);
-            }
+            if(m_piecesToMove.contains(new Pair<>(pieceWaitingToMove, pos)))
+                movePiece(m_boardSquareClicked.getPiece(), m_boardSquareClicked, squareClicked);
             unselectPossibleMoves();
             m_boardSquareClicked.setSelected(false);
             squareClicked.setSelected(false);
             m_boardSquareClicked = null;
         }
         // Make computer move if it's desired
-        if(m_gameType == GameType.SINGLE && m_colorToMove != m_playerColor){
+        if(m_gameType == GameType.SINGLE && m_colorToMove != m_playerColor)
             makeBestMove();
-            handleGameState();
-        }
     }
 
     /** Change color of squares that are possible to move to **/
     private void selectPossibleMoves(){
         unselectPossibleMoves();
         Piece piece = m_boardSquareClicked.getPiece();
-        ArrayList<Pos> possibleMoves = piece.calculatePossibleMoves(m_board.m_boardSquares);
-        for(Pos pos : possibleMoves){
-            if(piece.getType() != PieceAttributes.Type.KING){
-                if(m_piecesToMove.contains(new Pair<>(piece, pos)))
-                    m_board.m_boardSquares[pos.row()][pos.col()].setBackground(new Color(135, 206, 235));
-            }else m_board.m_boardSquares[pos.row()][pos.col()].setBackground(new Color(135, 206, 235));
+        for(Pair<Piece, Pos> move : m_piecesToMove){
+            if(move.getFirst() != piece)
+                continue;
+            Pos pos = move.getSecond();
+            m_board.m_boardSquares[pos.row()][pos.col()].setBackground(new Color(135, 206, 235));
         }
     }
 
@@ -253,31 +267,22 @@ public class GameLogicController implements ActionListener{
         }
     }
 
-    int generateMoves(int depth){
-        m_isPseudoMoving = true;
-
-        handleGameState();
-        ArrayList<Pair<Piece, Pos>> possibleMoves = new ArrayList<>(m_piecesToMove);
-
-        if(depth == 1)
-            return possibleMoves.size();
-        int moves = 0;
-        for(Pair<Piece, Pos> move : possibleMoves){
-            Piece pieceToMove = move.getFirst();
-            Pos currentPos = pieceToMove.getPos(), nextPos = move.getSecond();
-
-            BoardSquare fromSquare = m_board.m_boardSquares[currentPos.row()][currentPos.col()];
-            BoardSquare toSquare = m_board.m_boardSquares[nextPos.row()][nextPos.col()];
-
-            m_isPseudoMoving = true;
-            Move m = movePiece(pieceToMove, fromSquare, toSquare);
-            moves += generateMoves(depth - 1);
-            unmakeMove(m);
-        }
-
-        m_isPseudoMoving = false;
+    /**
+     * <a href="https://www.chessprogramming.org/Perft">Perft</a> of the position on the board
+     *
+     * @return number of leaf nodes of the move generation tree of given depth
+     */
+    long generateMoves(int depth){
+        return generateMoves(depth, 1, 0);
+    }
 
-        return moves;
+    /**
+     * @param threads             number of threads root moves are split between
+     * @param hashSizeInMegabytes size of the table caching subtree counts, 0 if they should not be cached
+     */
+    long generateMoves(int depth, int threads, int hashSizeInMegabytes){
+        PerftHashTable hashTable = hashSizeInMegabytes > 0 ? new PerftHashTable(hashSizeInMegabytes) : null;
+        return Perft.perft(new Position(m_board.generateFENotation()), depth, threads, hashTable);
     }
 
     /**
@@ -319,13 +324,29 @@ public class GameLogicController implements ActionListener{
         if(!didCapture && movedPiece.getType() != PieceAttributes.Type.PAWN)
             ++m_halfMoves;
         else m_halfMoves = 0;
+        m_gameKeys.add(m_zobristKey);
 
-        if(m_halfMoves >= 100){
+        if(m_halfMoves >= 100 || isThreefoldRepetition()){
             m_gameState = GameState.STALEMATE;
             gameFinished();
         }
     }
 
+    /**
+     * Checks whether the current position has occurred three times. Positions before the last capture or pawn move
+     * can't be repeated, so only the last <code>m_halfMoves</code> positions are compared.
+     */
+    private boolean isThreefoldRepetition(){
+        int last = m_gameKeys.size() - 1, first = Math.max(last - m_halfMoves, 0);
+        int count = 1;
+        // Only positions with the same side to move can be equal
+        for(int i = last - 2; i >= first; i -= 2){
+            if(m_gameKeys.get(i) == m_zobristKey)
+                ++count;
+        }
+        return count >= 3;
+    }
+
     /**
      * Moves passed as piece to a new square, removes piece from current position square.
      * Changes color of player to move and stops the current playing timer.
@@ -344,16 +365,29 @@ public class GameLogicController implements ActionListener{
         }
 
         Piece capturedPiece = toSquare.getPiece();
+        int previousCastlingRights = getCastlingRights();
+
+        m_zobristKey ^= Zobrist.getPieceKey(pieceToMove, fromSquare.getPos())
+                        ^ Zobrist.getPieceKey(pieceToMove, toSquare.getPos());
+        if(capturedPiece != null)
+            m_zobristKey ^= Zobrist.getPieceKey(capturedPiece, toSquare.getPos());
 
         pieceToMove.movePiece(toSquare.getPos().row(), toSquare.getPos().col());
         toSquare.setPiece(pieceToMove);
         fromSquare.setPiece(null);
 
+        int enpassantSquare = -1;
+        if(pieceToMove.getType() == PieceAttributes.Type.PAWN
+           && Math.abs(toSquare.getPos().row() - fromSquare.getPos().row()) == 2)
+            enpassantSquare = (toSquare.getPos().row() + fromSquare.getPos().row()) / 2 * 8 + toSquare.getPos().col();
+        updateStateKey(previousCastlingRights, enpassantSquare);
+
         move = new Move(pieceToMove, capturedPiece, fromSquare.getPos(), Move.MoveType.NORMAL);
         if(m_colorToMove == PieceAttributes.Color.WHITE) m_colorToMove = PieceAttributes.Color.BLACK;
         else m_colorToMove = PieceAttributes.Color.WHITE;
+        m_zobristKey ^= Zobrist.SIDE;
 
-        if(!m_isCastling && !m_isPseudoMoving){
+        if(!m_isCastling){
             changeRunningTimer();
             fiftyMoveRule(pieceToMove, capturedPiece != null);
             createMoveNotation(move, false, capturedPiece != null);
@@ -373,15 +407,18 @@ public class GameLogicController implements ActionListener{
         Piece capturedPawn = m_board.m_boardSquares[pawn.getPos().row() - direction][pawn.getPos().col()].getPiece();
         m_board.m_boardSquares[pawn.getPos().row() - direction][pawn.getPos().col()].setPiece(null);
 
+        m_zobristKey ^= Zobrist.getPieceKey(pawn, fromSquare.getPos()) ^ Zobrist.getPieceKey(pawn, toSquare.getPos())
+                        ^ Zobrist.getPieceKey(capturedPawn, capturedPawn.getPos());
+        updateStateKey(getCastlingRights(), -1);
+
         if(m_colorToMove == PieceAttributes.Color.WHITE) m_colorToMove = PieceAttributes.Color.BLACK;
         else m_colorToMove = PieceAttributes.Color.WHITE;
+        m_zobristKey ^= Zobrist.SIDE;
 
         Move move = new Move(pawn, capturedPawn, fromSquare.getPos(), Move.MoveType.ENPASSANT);
-        if(!m_isPseudoMoving){
-            changeRunningTimer();
-            fiftyMoveRule(pawn, true);
-            createMoveNotation(move, false, true);
-        }
+        changeRunningTimer();
+        fiftyMoveRule(pawn, true);
+        createMoveNotation(move, false, true);
         return move;
     }
 
@@ -394,6 +431,7 @@ public class GameLogicController implements ActionListener{
     private Move castlingMove(Piece king, Piece rook){
         int diff = king.getPos().col() - rook.getPos().col();
         Pos kingPos = king.getPos();
+        // Both moves below update the key of moved pieces, castling rights and side to move
         m_isCastling = true;
         if(diff > 0){
             // Castling king side
@@ -412,13 +450,12 @@ public class GameLogicController implements ActionListener{
 
         if(m_colorToMove == PieceAttributes.Color.WHITE) m_colorToMove = PieceAttributes.Color.BLACK;
         else m_colorToMove = PieceAttributes.Color.WHITE;
+        m_zobristKey ^= Zobrist.SIDE;
 
         Move move = new Move(king, rook, kingPos, Move.MoveType.CASTLING);
-        if(!m_isPseudoMoving){
-            changeRunningTimer();
-            fiftyMoveRule(king, false);
-            createMoveNotation(move, diff > 0, false);
-        }
+        changeRunningTimer();
+        fiftyMoveRule(king, false);
+        createMoveNotation(move, diff > 0, false);
         return move;
     }
 
@@ -429,90 +466,57 @@ public class GameLogicController implements ActionListener{
      */
     private Move promotionMove(Piece pawnToMove, BoardSquare fromSquare, BoardSquare toSquare){
         Piece pieceCaptured = toSquare.getPiece();
+        int previousCastlingRights = getCastlingRights();
 
         Piece newQueen = new Queen((Pawn) pawnToMove);
         pawnToMove.setPos(new Pos(toSquare.getPos().row(), toSquare.getPos().col()));
         newQueen.setPos(new Pos(toSquare.getPos().row(), toSquare.getPos().col()));
 
+        m_zobristKey ^= Zobrist.getPieceKey(pawnToMove, fromSquare.getPos())
+                        ^ Zobrist.getPieceKey(newQueen, toSquare.getPos());
+        if(pieceCaptured != null)
+            m_zobristKey ^= Zobrist.getPieceKey(pieceCaptured, toSquare.getPos());
+
         toSquare.setPiece(newQueen);
         fromSquare.setPiece(null);
+        updateStateKey(previousCastlingRights, -1);
         if(m_colorToMove == PieceAttributes.Color.WHITE) m_colorToMove = PieceAttributes.Color.BLACK;
         else m_colorToMove = PieceAttributes.Color.WHITE;
+        m_zobristKey ^= Zobrist.SIDE;
 
         //System.out.println(m_board);
         Move move = new Move(pawnToMove, pieceCaptured, fromSquare.getPos(), Move.MoveType.PROMOTION);
-        if(!m_isPseudoMoving){
-            changeRunningTimer();
-            fiftyMoveRule(pawnToMove, pieceCaptured != null);
-            createMoveNotation(move, false, pieceCaptured != null);
-        }
+        changeRunningTimer();
+        fiftyMoveRule(pawnToMove, pieceCaptured != null);
+        createMoveNotation(move, false, pieceCaptured != null);
         return move;
     }
 
     /**
-     * Returns <code>movedPiece</code> and <code>capturedPiece</code> to its original squares.
-     * Function is called only when calculating possible future moves in <code>minMax</code> algorithm function and
-     * in <code>isChecked</code> function
-     * If a previous move was castling, <code>movedPiece</code> contains a king and <code>capturedPiece</code>
-     * contains a rook
-     * Changes color of player to move and stops the current playing timer.
-     *
-     * @param move object that contains information about move(moved piece, captured piece, initial position, move type)
+     * Replaces castling rights and en passant square in the Zobrist key.
+     * Called after pieces have been moved on the board.
      */
-    private Piece unmakeMove(Move move){
-        Piece movedPiece = move.getMovedPiece(), capturedPiece = move.getCapturedPiece();
-        Pos initialPos = move.getInitialPos();
-
-        if(m_colorToMove == PieceAttributes.Color.WHITE) m_colorToMove = PieceAttributes.Color.BLACK;
-        else m_colorToMove = PieceAttributes.Color.WHITE;
-
-        BoardSquare fromSquare = m_board.m_boardSquares[initialPos.row()][initialPos.col()],
-                toSquare;
-
-        // Check if move was castling
-        if(move.getMoveType() == Move.MoveType.CASTLING){
-            int diff = movedPiece.getPos().col() - initialPos.col();
-            if(diff > 0) // short castle
-                toSquare = m_board.m_boardSquares[initialPos.row()][7];
-            else toSquare = m_board.m_boardSquares[initialPos.row()][0];
-
-            Pos kingPos = movedPiece.getPos(), rookPos = capturedPiece.getPos();
-            fromSquare.setPiece(movedPiece);
-            toSquare.setPiece(capturedPiece);
-
-            m_board.m_boardSquares[kingPos.row()][kingPos.col()].setPiece(null);
-            m_board.m_boardSquares[rookPos.row()][rookPos.col()].setPiece(null);
-
-            movedPiece.unmakeMove(fromSquare.getPos().row(), fromSquare.getPos().col());
-            capturedPiece.unmakeMove(toSquare.getPos().row(), toSquare.getPos().col());
-            return movedPiece;
-        }
-
-        toSquare = m_board.m_boardSquares[movedPiece.getPos().row()][movedPiece.getPos().col()];
-        // Check if move was promotion
-        if(move.getMoveType() == Move.MoveType.PROMOTION){
-            //movedPiece.unmakeMove(fromSquare.getPos().row(), fromSquare.getPos().col());
-            movedPiece.setPos(new Pos(fromSquare.getPos().row(), fromSquare.getPos().col()));
-            fromSquare.setPiece(movedPiece);
-            toSquare.setPiece(capturedPiece);
-            return movedPiece;
-        }
-
-        // Check if move was enpassant
-        if(move.getMoveType() == Move.MoveType.ENPASSANT){
-            ((Pawn) capturedPiece).setEnpassant(true);
-            m_board.m_boardSquares[capturedPiece.getPos().row()][capturedPiece.getPos().col()].setPiece(capturedPiece);
-            fromSquare.setPiece(movedPiece);
-            toSquare.setPiece(null);
-            movedPiece.unmakeMove(fromSquare.getPos().row(), fromSquare.getPos().col());
-            return movedPiece;
-        }
+    private void updateStateKey(int previousCastlingRights, int enpassantSquare){
+        m_zobristKey ^= Zobrist.getCastlingKey(previousCastlingRights) ^ Zobrist.getCastlingKey(getCastlingRights());
+        m_zobristKey ^= Zobrist.getEnpassantKey(m_enpassantSquare) ^ Zobrist.getEnpassantKey(enpassantSquare);
+        m_enpassantSquare = enpassantSquare;
+    }
 
+    /** Returns castling rights in the same format as <code>Position</code>, based on first move of kings and rooks */
+    private int getCastlingRights(){
+        int rights = 0;
+        if(canStillCastle(7, 7, PieceAttributes.Color.WHITE)) rights |= Position.WHITE_SHORT_CASTLE;
+        if(canStillCastle(7, 0, PieceAttributes.Color.WHITE)) rights |= Position.WHITE_LONG_CASTLE;
+        if(canStillCastle(0, 7, PieceAttributes.Color.BLACK)) rights |= Position.BLACK_SHORT_CASTLE;
+        if(canStillCastle(0, 0, PieceAttributes.Color.BLACK)) rights |= Position.BLACK_LONG_CASTLE;
+        return rights;
+    }
 
-        fromSquare.setPiece(movedPiece);
-        toSquare.setPiece(capturedPiece);
-        movedPiece.unmakeMove(fromSquare.getPos().row(), fromSquare.getPos().col());
-        return movedPiece;
+    private boolean canStillCastle(int row, int rookCol, PieceAttributes.Color color){
+        Piece king = m_board.m_boardSquares[row][4].getPiece(), rook = m_board.m_boardSquares[row][rookCol].getPiece();
+        return king != null && rook != null && king.getColor() == color && rook.getColor() == color
+               && king.getType() == PieceAttributes.Type.KING && rook.getType() == PieceAttributes.Type.ROOK
+               && king.getFirstMove() && rook.getFirstMove();
     }
 
     /**
@@ -605,8 +609,7 @@ public class GameLogicController implements ActionListener{
 
     protected void handleGameState(){
         m_piecesToMove.clear();
-        Pos kingPos = m_board.findKingPos(m_colorToMove);
-        m_gameState = checkForChecks(kingPos);
+        m_gameState = checkForChecks();
 
         for(int i = 0; i < 8; ++i){
             for(int j = 0; j < 8; ++j){
@@ -642,227 +645,111 @@ public class GameLogicController implements ActionListener{
     }
 
     /**
-     * Checks state of a game by checking possible moves of all <code>m_colorToMove</code> pieces.
-     * Functions checks for possible moves of the king and all pieces that attack the king.
-     *
-     * @param kingPos position of m_colorToMove color king
+     * Checks state of a game by generating legal moves of <code>m_colorToMove</code> on a headless copy of the board.
+     * Legal moves are stored in <code>m_piecesToMove</code>, castling as the king moving onto its rook and
+     * promotion only once since board always promotes to a queen.
      *
      * @return current state of the game (NONE, CHECK, MATE, STALEMATE)
      */
-    private GameState checkForChecks(Pos kingPos){
-        King king = (King) m_board.m_boardSquares[kingPos.row()][kingPos.col()].getPiece();
-        GameState gameState = GameState.NONE;
-
-        ArrayList<Pos> kingPossibleMoves = king.calculatePossibleMoves(m_board.m_boardSquares);
-        int[][] coveredSquares = king.getAllCoveredSquares(m_board.m_boardSquares);
-        int attackingPieces = coveredSquares[kingPos.row()][kingPos.col()]; // Number of pieces that attack the king
-
-        if(attackingPieces > 1 && kingPossibleMoves.isEmpty())
-            gameState = GameState.MATE;
-        else if(attackingPieces > 1)
-            gameState = GameState.CHECK;
-        else{
-            m_isPseudoMoving = true;
-            int countPossibleMoves = 0;
-            for(int i = 0; i < 8; ++i){
-                for(int j = 0; j < 8; ++j){
-                    Piece piece = m_board.m_boardSquares[i][j].getPiece();
-
-                    if(piece == null || piece.getColor() != king.getColor())
-                        continue;
-                    if(!isChecked(piece, king)) ++countPossibleMoves;
-                }
-            }
-            m_isPseudoMoving = false;
-            if(countPossibleMoves == 0 && kingPossibleMoves.isEmpty() && attackingPieces == 1)
-                gameState = GameState.MATE;
-            else if(countPossibleMoves == 0 && kingPossibleMoves.isEmpty() && attackingPieces == 0)
-                gameState = GameState.STALEMATE;
-            else if(attackingPieces != 0)
-                gameState = GameState.CHECK;
-
-            return gameState;
-        }
-
-        ArrayList<Pos> possibleMoves = king.calculatePossibleMoves(m_board.m_boardSquares);
-        for(Pos pos : possibleMoves){
-            m_piecesToMove.add(new Pair<>(king, pos));
-        }
-        return gameState;
+    private GameState checkForChecks(){
+        Position position = new Position(m_board.generateFENotation());
+        int[] legalMoves = position.generateLegalMoves();
+        for(int move : legalMoves){
+            if(Position.isPromotion(move) && Position.getPromotionType(move) != Position.QUEEN)
+                continue;
+            int from = Position.getFrom(move), to = Position.getTo(move);
+            Pos pos = new Pos(to / 8, to % 8);
+            if(Position.getFlag(move) == Position.SHORT_CASTLE)
+                pos = new Pos(from / 8, 7);
+            else if(Position.getFlag(move) == Position.LONG_CASTLE)
+                pos = new Pos(from / 8, 0);
+            m_piecesToMove.add(new Pair<>(m_board.m_boardSquares[from / 8][from % 8].getPiece(), pos));
+        }
+
+        if(legalMoves.length == 0)
+            return position.isInCheck() ? GameState.MATE : GameState.STALEMATE;
+        return position.isInCheck() ? GameState.CHECK : GameState.NONE;
     }
 
     /**
-     * Checks whether moving a given piece will put king in danger.
-     *
-     * @param piece piece to move
-     * @param king  king that might become under attack
-     * @return true if moving a piece is possible, false otherwise
+     * Starts search for the best move on a headless copy of the current position. Search runs on the engine thread,
+     * the move is played on the board from Swing thread once the search has finished. Player can't move meanwhile.
+     * Search stops at the chosen depth, which sets the engine's strength. In a timed game it can stop sooner, when the
+     * time budget taken from the engine's clock runs out.
      */
-    int isCheckedCalled = 0;
-    int possibleMovesCalled = 0;
-
-    private boolean isChecked(Piece piece, King king){
-        ArrayList<Pos> possibleMoves = piece.calculatePossibleMoves(m_board.m_boardSquares);
-        if(possibleMoves.size() == 0)
-            return true;
-        ++isCheckedCalled;
-        int legalMovesCount = 0;
-        // Check if removing the piece will put king in danger
-        Pos piecePos = piece.getPos();
-        if(piece.getType() != PieceAttributes.Type.KING){
-            m_board.m_boardSquares[piecePos.row()][piecePos.col()].setPiece(null);
-            if(king.isKingSafe(m_board.m_boardSquares)){
-                ++possibleMovesCalled;
-                m_board.m_boardSquares[piecePos.row()][piecePos.col()].setPiece(piece);
-                for(Pos move : possibleMoves){
-                    m_piecesToMove.add(new Pair<>(piece, move));
-                    ++legalMovesCount;
-                }
-                return legalMovesCount == 0;
-            }
-            m_board.m_boardSquares[piecePos.row()][piecePos.col()].setPiece(piece);
-        }
-        for(Pos move : possibleMoves){
-            BoardSquare fromSquare = m_board.m_boardSquares[piece.getPos().row()][piece.getPos().col()];
-            BoardSquare toSquare = m_board.m_boardSquares[move.row()][move.col()];
-
-            Move m = movePiece(piece, fromSquare, toSquare);
-            boolean isKingSafe = king.isKingSafe(m_board.m_boardSquares);
-            unmakeMove(m);
-
-            if(isKingSafe){
-                m_piecesToMove.add(new Pair<>(piece, move));
-                ++legalMovesCount;
-            }
-        }
-        return legalMovesCount == 0;
-    }
-
     private void makeBestMove(){
-        m_cache = new GameStateCache();
-        ComputerMove bestMove = null;
-        int depth = m_engineDepth;
-
-        if(depth == 0){
+        if(!m_canPlay)
+            return;
+        if(m_engineDepth == 0){
             makeRandomComputerMove();
+            handleGameState();
             return;
         }
 
-        m_isPseudoMoving = true;
-        boolean isMaximizing = m_playerColor != PieceAttributes.Color.WHITE;
-
-        double bestScore = isMaximizing ? -Double.MAX_VALUE : Double.MAX_VALUE;
-
-        handleGameState();
-
-        ArrayList<Pair<Piece, Pos>> possibleMoves = new ArrayList<>(m_piecesToMove);
-
-        for(Pair<Piece, Pos> move : possibleMoves){
-            Piece pieceToMove = move.getFirst();
-            Pos currentPos = pieceToMove.getPos(), nextPos = move.getSecond();
-
-            BoardSquare fromSquare = m_board.m_boardSquares[currentPos.row()][currentPos.col()];
-            BoardSquare toSquare = m_board.m_boardSquares[nextPos.row()][nextPos.col()];
-
-            m_isPseudoMoving = true;
-            Move m = movePiece(pieceToMove, fromSquare, toSquare);
-            double score = minMax(depth - 1, -Double.MAX_VALUE, Double.MAX_VALUE, !isMaximizing);
-            unmakeMove(m);
-
-            if(isMaximizing){
-                if(score > bestScore || bestMove == null){
-                    bestScore = score;
-                    bestMove = new ComputerMove(move.getFirst(), move.getSecond(), score);
-                }
-            }else{
-                if(score < bestScore || bestMove == null){
-                    bestScore = score;
-                    bestMove = new ComputerMove(move.getFirst(), move.getSecond(), score);
-                }
-            }
-        }
-
-        if(bestMove == null){
-            makeRandomComputerMove();
-            return;
+        long softTimeLimit = SearchController.NO_TIME_LIMIT, hardTimeLimit = SearchController.NO_TIME_LIMIT;
+        if(m_isTimedGame){
+            App.Timer engineTimer = (m_colorToMove == PieceAttributes.Color.WHITE) ? m_whiteTimer : m_blackTimer;
+            softTimeLimit = SearchController.getSoftTimeLimit(engineTimer.getRemainingTime(), engineTimer.getIncrement());
+            hardTimeLimit = SearchController.getHardTimeLimit(engineTimer.getRemainingTime(), engineTimer.getIncrement());
         }
 
-        m_isPseudoMoving = false;
+        Position position = new Position(m_board.generateFENotation());
+        // Engine should avoid repeating the game's positions when it is better and look for them when it is worse
+        position.setGameHistory(m_gameKeys.subList(0, m_gameKeys.size() - 1));
+        if(m_transpositionTable == null)
+            m_transpositionTable = new TranspositionTable(m_transpositionTableSize);
+        m_transpositionTable.newSearch();
+        SearchController search = new SearchController(position, m_transpositionTable, m_pawnHashTable);
+        search.setThreads(m_engineThreads);
+        search.setDeterministic(m_isEngineDeterministic);
+        m_engineSearch = search;
+        m_canPlay = false;
 
-        Piece pieceToMove = bestMove.getPieceToMove();
-        BoardSquare fromSquare = m_board.m_boardSquares[pieceToMove.getPos().row()][pieceToMove.getPos().col()];
-        BoardSquare toSquare = m_board.m_boardSquares[bestMove.getPosToMove().row()][bestMove.getPosToMove().col()];
-        movePiece(bestMove.getPieceToMove(), fromSquare, toSquare);
+        final int depth = m_engineDepth;
+        final long softLimit = softTimeLimit, hardLimit = hardTimeLimit;
+        m_engineExecutor.execute(() -> {
+            int bestMove = search.findBestMove(depth, softLimit, hardLimit);
+            SwingUtilities.invokeLater(() -> onSearchFinished(search, bestMove));
+        });
     }
 
-    /**
-     * <a href="https://en.wikipedia.org/wiki/Minimax">Minmax</a>
-     * with <a href="https://www.youtube.com/watch?v=l-hh51ncgDI">alpha-beta pruning</a>
-     * is implemented in this function.
-     *
-     * @param depth        number of moves to look
-     * @param alpha        minimum score that maximizing player is assured to get, starts with -inf
-     * @param beta         maximum score that minimazing player is assured to get, starts with inf
-     * @param isMaximizing true if next move is white's, false otherwise
-     *
-     * @return the best value for called piece color
-     */
-    private double minMax(int depth, double alpha, double beta, boolean isMaximizing){
-        if(depth == 0){
-            double score = PositionEvaluationController.getRating(m_board, m_gameState, m_colorToMove);
-            m_cache.add(m_board.hashCode(), score);
-            return score;
-        }
+    /** Plays move found by given search, unless the search has been stopped in the meantime */
+    private void onSearchFinished(SearchController search, int bestMove){
+        if(search != m_engineSearch)
+            return;
+        m_engineSearch = null;
+        m_canPlay = true;
 
+        if(bestMove == Position.NO_MOVE)
+            makeRandomComputerMove();
+        else playEngineMove(bestMove);
         handleGameState();
-        //System.out.println(m_piecesToMove.size());
-        m_isPseudoMoving = true;
-        ArrayList<Pair<Piece, Pos>> possibleMoves = new ArrayList<>(m_piecesToMove);
-
-        // Game is finished
-        if(possibleMoves.size() == 0){
-            if(m_gameState == GameState.MATE){
-                if(isMaximizing)
-                    return Double.MAX_VALUE;
-                return -Double.MAX_VALUE;
-            }
-            return 0.0;
-        }
+    }
 
-        double best = (isMaximizing) ? -Double.MAX_VALUE : Double.MAX_VALUE;
-        for(Pair<Piece, Pos> move : possibleMoves){
-            Piece pieceToMove = move.getFirst();
-            Pos currentPos = pieceToMove.getPos(), nextPos = move.getSecond();
-
-            BoardSquare fromSquare = m_board.m_boardSquares[currentPos.row()][currentPos.col()];
-            BoardSquare toSquare = m_board.m_boardSquares[nextPos.row()][nextPos.col()];
-
-            Move m = movePiece(pieceToMove, fromSquare, toSquare);
-            double ev;
-            // Check if position was reached before in pseudo transposition table
-            if(m_cache.containsPosition(m_board.hashCode())){
-                ev = m_cache.getScore(m_board.hashCode());
-            }else
-                ev = minMax(depth - 1, alpha, beta, !isMaximizing);
-            unmakeMove(m);
-
-            // Check if current move is better that previous ones
-            if(isMaximizing){
-                best = Math.max(ev, best);
-                alpha = Math.max(alpha, ev);
-            }else{
-                best = Math.min(best, ev);
-                beta = Math.min(beta, ev);
-            }
-            if(beta <= alpha){
-                System.out.println("PRUNED!");
-                break;
-            }
+    /** Aborts search that is running, its result is never played */
+    private void stopEngineSearch(){
+        if(m_engineSearch != null){
+            m_engineSearch.stop();
+            m_engineSearch = null;
         }
-
-        return best;
     }
 
+    /**
+     * Plays a move found by the engine on the board.
+     * Castling is played by moving the king onto its rook, the same way player does it.
+     */
+    private void playEngineMove(int move){
+        int from = Position.getFrom(move), to = Position.getTo(move);
+        BoardSquare fromSquare = m_board.m_boardSquares[from / 8][from % 8];
+        BoardSquare toSquare;
+        if(Position.getFlag(move) == Position.SHORT_CASTLE)
+            toSquare = m_board.m_boardSquares[from / 8][7];
+        else if(Position.getFlag(move) == Position.LONG_CASTLE)
+            toSquare = m_board.m_boardSquares[from / 8][0];
+        else toSquare = m_board.m_boardSquares[to / 8][to % 8];
+
+        movePiece(fromSquare.getPiece(), fromSquare, toSquare);
+    }
 
     /** Checks whether one of timers has stopped and stops the game if so **/
     private final javax.swing.Timer m_gameTimer = new javax.swing.Timer(100, e -> {
@@ -879,8 +766,20 @@ public class GameLogicController implements ActionListener{
         m_playerColor = playerColor;
     }
 
-    public void setEngineAttribs(int depth){
+    public void setEngineAttribs(int depth, int threads, boolean isDeterministic){
         m_engineDepth = depth;
+        m_engineThreads = threads;
+        m_isEngineDeterministic = isDeterministic;
+    }
+
+    /**
+     * Sets memory used by the engine transposition table. Table of the old size is dropped, a new one is created
+     * before the next engine move
+     */
+    public void setTranspositionTableSize(int megabytes){
+        if(megabytes != m_transpositionTableSize)
+            m_transpositionTable = null;
+        m_transpositionTableSize = megabytes;
     }
 
     public void setStartingColor(PieceAttributes.Color color){
@@ -894,13 +793,5 @@ public class GameLogicController implements ActionListener{
     public enum GameType{
         NONE, SINGLE, MULTI
     }
-
-    private record ComputerMove(Piece pieceToMove, Pos posToMove, double score){
-        Piece getPieceToMove(){return pieceToMove;}
-
-        Pos getPosToMove(){return posToMove;}
-
-        double getScore(){return score;}
-    }
 }
 
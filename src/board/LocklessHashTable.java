@@ -0,0 +1,55 @@
+package board;
+
+import java.util.Arrays;
+
+/**
+ * Table of a fixed size indexed by Zobrist keys, base of the engine caches. Every entry takes two longs, the key and
+ * the data stored with it. Data of zero marks an empty entry.
+ * <p>
+ * Table is shared by threads without any locks. Key is stored xor-ed with the data, so an entry that has been torn
+ * by two threads writing at once doesn't verify and is treated as a miss.
+ */
+abstract class LocklessHashTable{
+    /** Both longs of an entry */
+    private static final int ENTRY_BYTES = 16;
+
+    protected final long[] m_keys;
+    protected final long[] m_data;
+    /** Mask of bits of a key that select the first entry a key can be stored in */
+    protected final int m_indexMask;
+
+    /**
+     * @param sizeInMegabytes memory used by the table, the number of entries is rounded down to a power of two
+     * @param bucketSize      number of neighbouring entries a key can be stored in, a power of two
+     */
+    protected LocklessHashTable(int sizeInMegabytes, int bucketSize){
+        long entries = Math.max((long) sizeInMegabytes * 1024 * 1024 / ENTRY_BYTES, bucketSize);
+        entries = Math.min(Long.highestOneBit(entries), 1 << 30);
+        m_keys = new long[(int) entries];
+        m_data = new long[(int) entries];
+        m_indexMask = (int) entries - bucketSize;
+    }
+
+    /** Returns memory used by the entries, rounded down to whole megabytes */
+    public int getSizeInMegabytes(){
+        return (int) ((long) m_keys.length * ENTRY_BYTES / (1024 * 1024));
+    }
+
+    public void clear(){
+        Arrays.fill(m_keys, 0L);
+        Arrays.fill(m_data, 0L);
+    }
+
+    /** Returns data of the entry at given index if it has been stored with given key, otherwise 0 */
+    protected long read(int index, long key){
+        long data = m_data[index];
+        if(data != 0 && (m_keys[index] ^ data) == key)
+            return data;
+        return 0L;
+    }
+
+    protected void write(int index, long key, long data){
+        m_keys[index] = key ^ data;
+        m_data[index] = data;
+    }
+}
@@ -0,0 +1,37 @@
+package board;
+
+/**
+ * Caches pawn structure evaluation. Pawns move rarely compared to other pieces, so most leaves of the search share
+ * their pawn structure with a position evaluated before. Entry is found by the pawn key of a position and is always
+ * replaced.
+ * <p>
+ * Score is stored in one long, so the table can be shared by search threads in the same way as
+ * <code>TranspositionTable</code>.
+ */
+public class PawnHashTable extends LocklessHashTable{
+    /** Set in every stored entry, so an entry with zero score is not mistaken for an empty one */
+    private static final long VALID = 1L << 32;
+
+    /**
+     * @param sizeInMegabytes memory used by the table, the number of entries is rounded down to a power of two
+     */
+    public PawnHashTable(int sizeInMegabytes){
+        super(sizeInMegabytes, 1);
+    }
+
+    /**
+     * @return stored entry of given pawn key or 0 if it is not stored, read it with <code>getScore</code>
+     */
+    public long probe(long pawnKey){
+        return read((int) pawnKey & m_indexMask, pawnKey);
+    }
+
+    /** @return stored entry */
+    public long store(long pawnKey, int score){
+        long data = (score & 0xFFFFFFFFL) | VALID;
+        write((int) pawnKey & m_indexMask, pawnKey, data);
+        return data;
+    }
+
+    public static int getScore(long entry){return (int) entry;}
+}
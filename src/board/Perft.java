@@ -0,0 +1,198 @@
+package board;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * <a href="https://www.chessprogramming.org/Perft">Perft</a>, counts leaf nodes of the move generation tree.
+ * Counts of standard positions are known, so any mistake in move generation, make or unmake shows up as a different
+ * number. Run with <code>depth [FEN]</code> to print the count of every root move, or with <code>suite</code> to check
+ * all standard positions. Options <code>-threads N</code> and <code>-hash MB</code> split root moves between threads
+ * and cache counts of subtrees, so deep runs finish in reasonable time.
+ */
+public class Perft{
+    /** Standard positions and their counts for depth 1, 2, ... */
+    private static final String[] SUITE_POSITIONS = {
+            Position.START_POSITION,
+            // Kiwipete
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            // En passant that would expose the king, promotions
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            // Castling rights, promotions with capture, checks
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10"
+    };
+    private static final long[][] SUITE_COUNTS = {
+            {20, 400, 8902, 197281, 4865609, 119060324},
+            {48, 2039, 97862, 4085603, 193690690},
+            {14, 191, 2812, 43238, 674624, 11030083, 178633661},
+            {6, 264, 9467, 422333, 15833292},
+            {44, 1486, 62379, 2103487, 89941194},
+            {46, 2079, 89890, 3894594, 164075551}
+    };
+
+    /** Returns number of leaf nodes of the tree of given depth */
+    public static long perft(Position position, int depth){
+        return perft(position, depth, 1, null);
+    }
+
+    /**
+     * Returns number of leaf nodes of the tree of given depth, root moves are split between threads
+     *
+     * @param threads   number of threads, every one counts root moves on its own copy of the position
+     * @param hashTable counts of subtrees shared by all threads or null if they are not cached
+     */
+    public static long perft(Position position, int depth, int threads, PerftHashTable hashTable){
+        long[] counts = countRootMoves(position, position.generateLegalMoves(), depth, threads, hashTable);
+        return Arrays.stream(counts).sum();
+    }
+
+    /** Returns number of leaf nodes after every given root move */
+    private static long[] countRootMoves(Position position, int[] rootMoves, int depth, int threads,
+                                         PerftHashTable hashTable){
+        long[] counts = new long[rootMoves.length];
+        if(depth <= 1){
+            Arrays.fill(counts, 1);
+            return counts;
+        }
+
+        if(threads <= 1){
+            int[][] moveBuffers = new int[depth][Position.MAX_MOVES];
+            for(int i = 0; i < rootMoves.length; ++i){
+                position.makeMove(rootMoves[i]);
+                counts[i] = perft(position, depth - 1, moveBuffers, hashTable);
+                position.unmakeMove(rootMoves[i]);
+            }
+            return counts;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try{
+            ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[rootMoves.length];
+            for(int i = 0; i < rootMoves.length; ++i){
+                final int index = i;
+                tasks[i] = pool.submit(() -> {
+                    Position copy = new Position(position);
+                    copy.makeMove(rootMoves[index]);
+                    counts[index] = perft(copy, depth - 1, new int[depth][Position.MAX_MOVES], hashTable);
+                });
+            }
+            for(ForkJoinTask<?> task : tasks)
+                task.join();
+        }finally{
+            pool.shutdown();
+        }
+        return counts;
+    }
+
+    /** Leaves are not made, number of legal moves at the last ply is the number of leaves */
+    private static long perft(Position position, int depth, int[][] moveBuffers, PerftHashTable hashTable){
+        // Counting moves at the last ply is cheaper than looking it up
+        if(hashTable != null && depth > 1){
+            long count = hashTable.probe(position.getZobristKey(), depth);
+            if(count >= 0)
+                return count;
+        }
+
+        int[] moves = moveBuffers[depth - 1];
+        int count = position.generateLegalMoves(moves);
+        if(depth == 1)
+            return count;
+
+        long nodes = 0;
+        for(int i = 0; i < count; ++i){
+            position.makeMove(moves[i]);
+            nodes += perft(position, depth - 1, moveBuffers, hashTable);
+            position.unmakeMove(moves[i]);
+        }
+        if(hashTable != null)
+            hashTable.store(position.getZobristKey(), depth, nodes);
+        return nodes;
+    }
+
+    /** Prints number of leaf nodes after every root move, total count and speed */
+    public static long divide(Position position, int depth){
+        return divide(position, depth, 1, null);
+    }
+
+    public static long divide(Position position, int depth, int threads, PerftHashTable hashTable){
+        long start = System.nanoTime();
+        int[] rootMoves = position.generateLegalMoves();
+        long[] counts = countRootMoves(position, rootMoves, depth, threads, hashTable);
+        long total = 0;
+        for(int i = 0; i < rootMoves.length; ++i){
+            System.out.println(Position.toNotation(rootMoves[i]) + ": " + counts[i]);
+            total += counts[i];
+        }
+        System.out.println();
+        System.out.println("Nodes: " + total);
+        printSpeed(total, System.nanoTime() - start);
+        return total;
+    }
+
+    /**
+     * Checks counts of all standard positions up to given depth
+     *
+     * @return true if every count matches
+     */
+    public static boolean runSuite(int maxDepth){
+        return runSuite(maxDepth, 1, 0);
+    }
+
+    /**
+     * @param hashSizeInMegabytes size of the table caching subtree counts, 0 if they should not be cached
+     */
+    public static boolean runSuite(int maxDepth, int threads, int hashSizeInMegabytes){
+        boolean isCorrect = true;
+        long totalNodes = 0, totalTime = 0;
+        for(int i = 0; i < SUITE_POSITIONS.length; ++i){
+            Position position = new Position(SUITE_POSITIONS[i]);
+            for(int depth = 1; depth <= Math.min(maxDepth, SUITE_COUNTS[i].length); ++depth){
+                // Every run gets an empty table, so counts are not just read from the previous depth
+                PerftHashTable hashTable = hashSizeInMegabytes > 0 ? new PerftHashTable(hashSizeInMegabytes) : null;
+                long start = System.nanoTime();
+                long nodes = perft(position, depth, threads, hashTable);
+                totalTime += System.nanoTime() - start;
+                totalNodes += nodes;
+
+                long expected = SUITE_COUNTS[i][depth - 1];
+                if(nodes != expected){
+                    isCorrect = false;
+                    System.out.println("FAILED " + SUITE_POSITIONS[i] + " depth " + depth + ": " + nodes
+                                       + ", expected " + expected);
+                }
+            }
+        }
+        System.out.println(isCorrect ? "All counts are correct" : "Some counts are wrong");
+        System.out.println("Nodes: " + totalNodes);
+        printSpeed(totalNodes, totalTime);
+        return isCorrect;
+    }
+
+    private static void printSpeed(long nodes, long nanoseconds){
+        long milliseconds = Math.max(nanoseconds / 1_000_000, 1);
+        System.out.println("Time: " + milliseconds + "ms, " + nodes * 1000 / milliseconds + " nodes per second");
+    }
+
+    /**
+     * @param args <code>[-threads N] [-hash MB] suite [max depth]</code> or
+     *             <code>[-threads N] [-hash MB] depth [FEN]</code>, start position is used if FEN is not given
+     */
+    public static void main(String[] args){
+        CommandLine commandLine = new CommandLine(args, "-threads", "-hash");
+        int threads = commandLine.getOption("-threads", 1);
+        int hashSizeInMegabytes = commandLine.getOption("-hash", 0);
+
+        if(commandLine.getArgumentCount() == 0 || commandLine.getArgument(0).equals("suite")){
+            int maxDepth = commandLine.getArgumentCount() > 1 ? Integer.parseInt(commandLine.getArgument(1)) : 5;
+            System.exit(runSuite(maxDepth, threads, hashSizeInMegabytes) ? 0 : 1);
+        }
+
+        int depth = Integer.parseInt(commandLine.getArgument(0));
+        String feNotation = commandLine.getFeNotation(1);
+        PerftHashTable hashTable = hashSizeInMegabytes > 0 ? new PerftHashTable(hashSizeInMegabytes) : null;
+        divide(new Position(feNotation), depth, threads, hashTable);
+    }
+}
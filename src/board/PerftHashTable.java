@@ -0,0 +1,31 @@
+package board;
+
+/**
+ * Caches perft counts of subtrees. Entry is found by the position key and the depth left, so a position reached
+ * through different move orders is counted only once. Entries are always replaced and shared by perft threads.
+ */
+public class PerftHashTable extends LocklessHashTable{
+    /** Mixed into the key, so counts of different depths don't verify against each other */
+    private static final long DEPTH_KEY = 0x9E3779B97F4A7C15L;
+
+    /**
+     * @param sizeInMegabytes memory used by the table, the number of entries is rounded down to a power of two
+     */
+    public PerftHashTable(int sizeInMegabytes){
+        super(sizeInMegabytes, 1);
+    }
+
+    /**
+     * @return stored count of given position and depth or -1 if it is not stored
+     */
+    public long probe(long key, int depth){
+        long entryKey = key ^ (DEPTH_KEY * depth);
+        long count = read((int) entryKey & m_indexMask, entryKey);
+        return count != 0 ? count : -1;
+    }
+
+    public void store(long key, int depth, long count){
+        long entryKey = key ^ (DEPTH_KEY * depth);
+        write((int) entryKey & m_indexMask, entryKey, count);
+    }
+}
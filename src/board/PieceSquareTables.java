@@ -0,0 +1,140 @@
+package board;
+
+import pieces.PieceAttributes;
+
+/**
+ * Material and <a href="https://www.chessprogramming.org/Piece-Square_Tables">piece-square tables</a>.
+ * Both are linear, so <code>Position</code> keeps their sums up to date with every piece put on or removed from
+ * a square instead of the evaluation adding them up at every leaf.
+ * <p>
+ * Every value has a midgame and an endgame part packed in one int, endgame in the high 16 bits. Packed values can be
+ * added and subtracted like plain ints as long as both parts of the result fit in a short.
+ */
+class PieceSquareTables{
+    // white - array[row * 8 + col]
+    // black - array[63 - (row * 8 + col)]
+
+    private final static int[] knight_scores = {
+            -50, -40, -30, -30, -30, -30, -40, -50,
+            -40, -20, 0, 0, 0, 0, -20, -40,
+            -30, 0, 10, 15, 15, 10, 0, -30,
+            -30, 5, 15, 20, 20, 15, 5, -30,
+            -30, 0, 15, 20, 20, 15, 0, -30,
+            -30, 5, 10, 15, 15, 10, 5, -30,
+            -40, -20, 0, 5, 5, 0, -20, -40,
+            -50, -40, -20, -30, -30, -20, -40, -50,
+    };
+
+    private final static int[] bishop_scored = {
+            -20, -10, -10, -10, -10, -10, -10, -20,
+            -10, 0, 0, 0, 0, 0, 0, -10,
+            -10, 0, 5, 10, 10, 5, 0, -10,
+            -10, 5, 5, 10, 10, 5, 5, -10,
+            -10, 0, 10, 10, 10, 10, 0, -10,
+            -10, 10, 10, 10, 10, 10, 10, -10,
+            -10, 5, 0, 0, 0, 0, 5, -10,
+            -20, -10, -40, -10, -10, -40, -10, -20,
+    };
+
+    private final static int[] king_table_midgame = {
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -20, -30, -30, -40, -40, -30, -30, -20,
+            -10, -20, -20, -20, -20, -20, -20, -10,
+            20, 20, 0, 0, 0, 0, 20, 20,
+            20, 30, 10, 0, 0, 10, 30, 20
+    };
+
+    private final static int[] king_table_endgame = {
+            -50, -40, -30, -20, -20, -30, -40, -50,
+            -30, -20, -10, 0, 0, -10, -20, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -30, 0, 0, 0, 0, -30, -30,
+            -50, -30, -30, -30, -30, -30, -30, -50
+    };
+
+    private final static int[] pawn_table_early = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            -10, -10, -20, -30, -30, -20, -10, -10,
+            -10, -10, -20, -30, -30, -20, -10, -10,
+            -10, -5, -5, 10, 10, -5, -10, -10,
+            0, 5, 5, 40, 40, 5, 5, 0,
+            10, 10, 30, 30, 30, 30, 10, 10,
+            15, 15, 15, 15, 15, 15, 15, 15,
+            0, 0, 0, 0, 0, 0, 0, 0
+    };
+
+    private final static int[] pawn_table_midgame = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            50, 50, 50, 50, 50, 50, 50, 50,
+            10, 10, 20, 30, 30, 20, 10, 10,
+            5, 5, 10, 27, 27, 10, 5, 5,
+            0, 0, 0, 25, 25, 0, 0, 0,
+            5, -5, -10, 0, 0, -10, -5, 5,
+            5, 10, 10, -25, -25, 10, 10, 5,
+            0, 0, 0, 0, 0, 0, 0, 0
+    };
+
+    /** Game phase with all pieces on the board */
+    static final int MAX_PHASE = 24;
+    /** Phase of every piece type, pieces that leave the board bring the game closer to the endgame */
+    private static final int[] TYPE_PHASES = {0, 4, 2, 1, 1, 0};
+
+    /** Packed value of a piece index as used by <code>Position</code> on a square, negative for black pieces */
+    static final int[][] SCORES = new int[12][64];
+    /** Phase of a piece index as used by <code>Position</code> */
+    static final int[] PHASES = new int[12];
+
+    static{
+        for(int piece = 0; piece < 12; ++piece){
+            int type = Position.getPieceType(piece);
+            int sign = Position.getPieceColor(piece) == Position.WHITE ? 1 : -1;
+            // Kings are always on the board, their material would only cancel out
+            int material = type == Position.KING ? 0 : PieceAttributes.Type.values()[type].getValue();
+            PHASES[piece] = TYPE_PHASES[type];
+            for(int square = 0; square < 64; ++square){
+                int index = sign == 1 ? square : 63 - square;
+                int midgame = material, endgame = material;
+                switch(type){
+                    case Position.PAWN -> {
+                        midgame += pawn_table_early[index];
+                        endgame += pawn_table_midgame[index];
+                    }
+                    case Position.KNIGHT -> {
+                        midgame += knight_scores[index];
+                        // Knights are worth less in endgame
+                        endgame += knight_scores[index] - 12;
+                    }
+                    case Position.BISHOP -> {
+                        midgame += bishop_scored[index];
+                        endgame += bishop_scored[index];
+                    }
+                    case Position.KING -> {
+                        midgame += king_table_midgame[index];
+                        endgame += king_table_endgame[index];
+                    }
+                    default -> {
+                    }
+                }
+                SCORES[piece][square] = score(sign * midgame, sign * endgame);
+            }
+        }
+    }
+
+    static int score(int midgame, int endgame){return (endgame << 16) + midgame;}
+
+    static int midgame(int score){return (short) score;}
+
+    /** Rounds up, so the borrow taken from the endgame part by a negative midgame part is added back */
+    static int endgame(int score){return (score + 0x8000) >> 16;}
+
+    /** Interpolates between midgame and endgame parts of the score by the game phase */
+    static int taper(int score, int phase){
+        return (midgame(score) * phase + endgame(score) * (MAX_PHASE - phase)) / MAX_PHASE;
+    }
+}
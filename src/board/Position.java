@@ -0,0 +1,803 @@
+package board;
+
+import pieces.MagicBitboards;
+import pieces.PieceAttributes;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Headless chess position used by the engine. Every piece kind is kept in its own bitboard where bit
+ * <code>row * 8 + col</code> matches <code>BoardSquare[row][col]</code>, so square 0 is a8 and square 63 is h1.
+ * Moves are made and unmade in place, nothing here touches Swing.
+ */
+public class Position{
+    /** Standard starting position of a game in Forsyth-Edwards notation */
+    public static final String START_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+
+    // Piece types use the same order as PieceAttributes.Type
+    public static final int KING = 0;
+    public static final int QUEEN = 1;
+    public static final int ROOK = 2;
+    public static final int BISHOP = 3;
+    public static final int KNIGHT = 4;
+    public static final int PAWN = 5;
+
+    public static final int EMPTY = -1;
+    public static final int NO_MOVE = 0;
+    /** Upper bound of the number of moves in any position, size of a move buffer */
+    public static final int MAX_MOVES = 256;
+
+    public static final int WHITE_SHORT_CASTLE = 1;
+    public static final int WHITE_LONG_CASTLE = 2;
+    public static final int BLACK_SHORT_CASTLE = 4;
+    public static final int BLACK_LONG_CASTLE = 8;
+
+    // Move flags, promotions keep the promoted piece in the two lowest bits
+    public static final int QUIET = 0;
+    public static final int DOUBLE_PUSH = 1;
+    public static final int SHORT_CASTLE = 2;
+    public static final int LONG_CASTLE = 3;
+    public static final int CAPTURE = 4;
+    public static final int EN_PASSANT = 5;
+    public static final int PROMOTION = 8;
+
+    private static final int[] PROMOTION_PIECES = {KNIGHT, BISHOP, ROOK, QUEEN};
+    private static final PieceAttributes.Type[] TYPES = PieceAttributes.Type.values();
+
+    /** Maximum number of moves that can be unmade */
+    private static final int MAX_HISTORY = 1024;
+
+    private static final long[] KNIGHT_ATTACKS = new long[64];
+    private static final long[] KING_ATTACKS = new long[64];
+    /** Squares attacked by a pawn of given color standing on given square */
+    private static final long[][] PAWN_ATTACKS = new long[2][64];
+    /** Castling rights that stay after a piece moves from or to given square */
+    private static final int[] CASTLING_MASK = new int[64];
+
+    /** Squares strictly between two squares on the same line, empty if squares are not on a line */
+    private static final long[][] BETWEEN = new long[64][64];
+    /** Whole line going through two squares, empty if squares are not on a line */
+    private static final long[][] LINE = new long[64][64];
+
+    static{
+        int[][] knightOffsets = {{-2, -1}, {-2, 1}, {2, -1}, {2, 1}, {1, -2}, {1, 2}, {-1, -2}, {-1, 2}};
+        for(int square = 0; square < 64; ++square){
+            int row = square / 8, col = square % 8;
+            for(int[] offset : knightOffsets)
+                KNIGHT_ATTACKS[square] |= bit(row + offset[0], col + offset[1]);
+
+            for(int i = -1; i <= 1; ++i){
+                for(int j = -1; j <= 1; ++j){
+                    if(i != 0 || j != 0)
+                        KING_ATTACKS[square] |= bit(row + i, col + j);
+                }
+            }
+            PAWN_ATTACKS[WHITE][square] = bit(row - 1, col - 1) | bit(row - 1, col + 1);
+            PAWN_ATTACKS[BLACK][square] = bit(row + 1, col - 1) | bit(row + 1, col + 1);
+        }
+
+        for(int square = 0; square < 64; ++square){
+            for(int target = 0; target < 64; ++target){
+                if(square == target)
+                    continue;
+                long squares = (1L << square) | (1L << target);
+                // Rays of both squares overlap only on the line between them
+                if((MagicBitboards.getRookAttacks(square, 0L) & (1L << target)) != 0){
+                    LINE[square][target] = (MagicBitboards.getRookAttacks(square, 0L)
+                                            & MagicBitboards.getRookAttacks(target, 0L)) | squares;
+                    BETWEEN[square][target] = MagicBitboards.getRookAttacks(square, 1L << target)
+                                              & MagicBitboards.getRookAttacks(target, 1L << square);
+                }else if((MagicBitboards.getBishopAttacks(square, 0L) & (1L << target)) != 0){
+                    LINE[square][target] = (MagicBitboards.getBishopAttacks(square, 0L)
+                                            & MagicBitboards.getBishopAttacks(target, 0L)) | squares;
+                    BETWEEN[square][target] = MagicBitboards.getBishopAttacks(square, 1L << target)
+                                              & MagicBitboards.getBishopAttacks(target, 1L << square);
+                }
+            }
+        }
+
+        Arrays.fill(CASTLING_MASK, 15);
+        CASTLING_MASK[60] &= ~(WHITE_SHORT_CASTLE | WHITE_LONG_CASTLE);
+        CASTLING_MASK[63] &= ~WHITE_SHORT_CASTLE;
+        CASTLING_MASK[56] &= ~WHITE_LONG_CASTLE;
+        CASTLING_MASK[4] &= ~(BLACK_SHORT_CASTLE | BLACK_LONG_CASTLE);
+        CASTLING_MASK[7] &= ~BLACK_SHORT_CASTLE;
+        CASTLING_MASK[0] &= ~BLACK_LONG_CASTLE;
+    }
+
+    /** Bitboard of every piece kind, indexed by <code>color * 6 + type</code> */
+    private final long[] m_pieces = new long[12];
+    private final long[] m_colorOccupancy = new long[2];
+    private long m_occupancy;
+    /** Piece standing on each square or EMPTY, mirrors the bitboards for quick lookups */
+    private final int[] m_squares = new int[64];
+
+    private int m_sideToMove = WHITE;
+    private int m_castlingRights = 0;
+    /** Square behind a pawn that has just moved two squares, -1 if there is none */
+    private int m_enpassantSquare = -1;
+    /** Counter for moves with no capture or no pawn moves */
+    private int m_halfMoves = 0;
+    /** Counter for all moves, incremented after black move */
+    private int m_fullMoves = 1;
+    /** Zobrist key of the position, updated with every change */
+    private long m_key = 0L;
+    /** Zobrist key of pawns only, pawn structure is the same for every position with this key */
+    private long m_pawnKey = 0L;
+    /** Material and piece-square values of all pieces packed by <code>PieceSquareTables.score</code>, white's view */
+    private int m_score = 0;
+    /** Game phase of pieces on the board, may exceed MAX_PHASE after promotions */
+    private int m_phase = 0;
+
+    // State that can't be restored from a move itself, stored for every move made
+    private final int[] m_capturedHistory = new int[MAX_HISTORY];
+    private final int[] m_castlingHistory = new int[MAX_HISTORY];
+    private final int[] m_enpassantHistory = new int[MAX_HISTORY];
+    private final int[] m_halfMovesHistory = new int[MAX_HISTORY];
+    private final long[] m_keyHistory = new long[MAX_HISTORY];
+    private int m_historyCount = 0;
+    /** Number of keys given by <code>setGameHistory</code>, keys from this index on are of moves made here */
+    private int m_gameHistoryCount = 0;
+
+    /** Material balance after every capture of an exchange, used by <code>getExchangeGain</code> */
+    private final int[] m_exchangeGains = new int[32];
+
+    /**
+     * Creates a position from given <a href="https://www.chess.com/terms/fen-chess">FEN</a>
+     *
+     * @throws IllegalArgumentException if notation is incorrect
+     */
+    public Position(String feNotation){
+        Arrays.fill(m_squares, EMPTY);
+        String[] values = feNotation.trim().split(" +");
+        if(values.length < 4)
+            throw new IllegalArgumentException("Incorrect FE Notation: " + feNotation);
+
+        int row = 0, col = 0;
+        for(char ch : values[0].toCharArray()){
+            if(ch == '/'){
+                ++row;
+                col = 0;
+            }else if(Character.isDigit(ch)){
+                col += Character.getNumericValue(ch);
+            }else{
+                int type = "kqrbnp".indexOf(Character.toLowerCase(ch));
+                if(type == -1 || row > 7 || col > 7)
+                    throw new IllegalArgumentException("Incorrect FE Notation: " + feNotation);
+                putPiece(row * 8 + col, pieceOf(Character.isLowerCase(ch) ? BLACK : WHITE, type));
+                ++col;
+            }
+        }
+        if(Long.bitCount(m_pieces[pieceOf(WHITE, KING)]) != 1 || Long.bitCount(m_pieces[pieceOf(BLACK, KING)]) != 1)
+            throw new IllegalArgumentException("Incorrect FE Notation: " + feNotation);
+
+        m_sideToMove = values[1].equals("b") ? BLACK : WHITE;
+        if(m_sideToMove == BLACK)
+            m_key ^= Zobrist.SIDE;
+
+        // Castling rights are only kept if king and rook are still on their squares
+        if(values[2].contains("K") && m_squares[60] == pieceOf(WHITE, KING) && m_squares[63] == pieceOf(WHITE, ROOK))
+            m_castlingRights |= WHITE_SHORT_CASTLE;
+        if(values[2].contains("Q") && m_squares[60] == pieceOf(WHITE, KING) && m_squares[56] == pieceOf(WHITE, ROOK))
+            m_castlingRights |= WHITE_LONG_CASTLE;
+        if(values[2].contains("k") && m_squares[4] == pieceOf(BLACK, KING) && m_squares[7] == pieceOf(BLACK, ROOK))
+            m_castlingRights |= BLACK_SHORT_CASTLE;
+        if(values[2].contains("q") && m_squares[4] == pieceOf(BLACK, KING) && m_squares[0] == pieceOf(BLACK, ROOK))
+            m_castlingRights |= BLACK_LONG_CASTLE;
+
+        if(!values[3].equals("-")){
+            if(values[3].length() != 2)
+                throw new IllegalArgumentException("Incorrect FE Notation: " + feNotation);
+            int epCol = values[3].charAt(0) - 'a', epRow = 8 - Character.getNumericValue(values[3].charAt(1));
+            if(epCol < 0 || epCol > 7 || epRow < 0 || epRow > 7)
+                throw new IllegalArgumentException("Incorrect FE Notation: " + feNotation);
+            m_enpassantSquare = epRow * 8 + epCol;
+        }
+        m_key ^= Zobrist.getCastlingKey(m_castlingRights) ^ Zobrist.getEnpassantKey(m_enpassantSquare);
+
+        try{
+            if(values.length > 4) m_halfMoves = Integer.parseInt(values[4]);
+            if(values.length > 5) m_fullMoves = Integer.parseInt(values[5]);
+        }catch(NumberFormatException e){
+            throw new IllegalArgumentException("Incorrect FE Notation: " + feNotation);
+        }
+    }
+
+    /**
+     * Copies the position. Keys of earlier positions are copied too so repetitions are still found, but moves made
+     * before the copy can't be unmade on it.
+     */
+    public Position(Position other){
+        System.arraycopy(other.m_pieces, 0, m_pieces, 0, 12);
+        System.arraycopy(other.m_colorOccupancy, 0, m_colorOccupancy, 0, 2);
+        System.arraycopy(other.m_squares, 0, m_squares, 0, 64);
+        m_occupancy = other.m_occupancy;
+        m_sideToMove = other.m_sideToMove;
+        m_castlingRights = other.m_castlingRights;
+        m_enpassantSquare = other.m_enpassantSquare;
+        m_halfMoves = other.m_halfMoves;
+        m_fullMoves = other.m_fullMoves;
+        m_key = other.m_key;
+        m_pawnKey = other.m_pawnKey;
+        m_score = other.m_score;
+        m_phase = other.m_phase;
+        System.arraycopy(other.m_keyHistory, 0, m_keyHistory, 0, other.m_historyCount);
+        m_historyCount = other.m_historyCount;
+        m_gameHistoryCount = other.m_gameHistoryCount;
+    }
+
+    public static int pieceOf(int color, int type){return color * 6 + type;}
+
+    public static int getPieceColor(int piece){return piece / 6;}
+
+    public static int getPieceType(int piece){return piece % 6;}
+
+    public static PieceAttributes.Type toType(int piece){return TYPES[getPieceType(piece)];}
+
+    public static PieceAttributes.Color toColor(int piece){
+        return getPieceColor(piece) == WHITE ? PieceAttributes.Color.WHITE : PieceAttributes.Color.BLACK;
+    }
+
+    public static int createMove(int from, int to, int flag){return from | (to << 6) | (flag << 12);}
+
+    public static int getFrom(int move){return move & 63;}
+
+    public static int getTo(int move){return (move >>> 6) & 63;}
+
+    public static int getFlag(int move){return (move >>> 12) & 15;}
+
+    public static boolean isCapture(int move){return (getFlag(move) & CAPTURE) != 0;}
+
+    public static boolean isPromotion(int move){return (getFlag(move) & PROMOTION) != 0;}
+
+    /** Returns type of a piece that pawn promotes to, only valid if <code>isPromotion</code> is true */
+    public static int getPromotionType(int move){return PROMOTION_PIECES[getFlag(move) & 3];}
+
+    /** Returns move in coordinate notation, for example e2e4 or e7e8q */
+    public static String toNotation(int move){
+        String notation = toNotationSquare(getFrom(move)) + toNotationSquare(getTo(move));
+        // Promotion flags keep the promoted piece in the two lowest bits
+        if(isPromotion(move))
+            notation += "nbrq".charAt(getFlag(move) & 3);
+        return notation;
+    }
+
+    private static String toNotationSquare(int square){
+        return "" + (char) ('a' + square % 8) + (8 - square / 8);
+    }
+
+    private static long bit(int row, int col){
+        if(row < 0 || row > 7 || col < 0 || col > 7)
+            return 0L;
+        return 1L << (row * 8 + col);
+    }
+
+    public int getPiece(int square){return m_squares[square];}
+
+    public long getPieces(int color, int type){return m_pieces[pieceOf(color, type)];}
+
+    public int getSideToMove(){return m_sideToMove;}
+
+    public PieceAttributes.Color getColorToMove(){
+        return m_sideToMove == WHITE ? PieceAttributes.Color.WHITE : PieceAttributes.Color.BLACK;
+    }
+
+    public int getCastlingRights(){return m_castlingRights;}
+
+    public int getEnpassantSquare(){return m_enpassantSquare;}
+
+    public int getHalfMoves(){return m_halfMoves;}
+
+    public int getFullMoves(){return m_fullMoves;}
+
+    public long getZobristKey(){return m_key;}
+
+    public long getPawnKey(){return m_pawnKey;}
+
+    public long getOccupancy(){return m_occupancy;}
+
+    /**
+     * Returns material and piece-square values of all pieces, positive if white is better. Midgame and endgame values
+     * are packed together, use <code>PieceSquareTables.midgame</code> and <code>endgame</code> to read them
+     */
+    public int getScore(){return m_score;}
+
+    /** Returns PieceSquareTables.MAX_PHASE with all pieces on the board, 0 if only kings and pawns are left */
+    public int getPhase(){return Math.min(m_phase, PieceSquareTables.MAX_PHASE);}
+
+    public int getKingSquare(int color){return Long.numberOfTrailingZeros(m_pieces[pieceOf(color, KING)]);}
+
+    /**
+     * Returns true if this position is a draw by repetition since the last capture or pawn move. A position repeated
+     * once in moves made on this position can be repeated again, so the search treats it as a draw already. Positions
+     * of the game given to <code>setGameHistory</code> have to occur twice before, the game ends only on threefold
+     * repetition and the opponent can play past a twofold one.
+     */
+    public boolean isRepetition(){
+        int first = Math.max(m_historyCount - m_halfMoves, 0);
+        int gameRepetitions = 0;
+        // Only positions with the same side to move can be equal
+        for(int i = m_historyCount - 2; i >= first; i -= 2){
+            if(m_keyHistory[i] != m_key)
+                continue;
+            if(i >= m_gameHistoryCount || ++gameRepetitions == 2)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Sets keys of positions played in the game before this one, so <code>isRepetition</code> finds repetitions of
+     * them too. Has to be called before any move is made.
+     *
+     * @param keys Zobrist keys of earlier positions, the oldest first
+     */
+    public void setGameHistory(List<Long> keys){
+        // Older positions can't be repeated anymore
+        int count = Math.min(Math.min(keys.size(), m_halfMoves), MAX_HISTORY / 2);
+        for(int i = 0; i < count; ++i)
+            m_keyHistory[i] = keys.get(keys.size() - count + i);
+        m_historyCount = count;
+        m_gameHistoryCount = count;
+    }
+
+    /** Returns true if given side has any piece other than pawns and king */
+    public boolean hasNonPawnMaterial(int color){
+        return (m_colorOccupancy[color] & ~m_pieces[pieceOf(color, PAWN)] & ~m_pieces[pieceOf(color, KING)]) != 0;
+    }
+
+    public boolean isInCheck(){
+        return isSquareAttacked(getKingSquare(m_sideToMove), m_sideToMove ^ 1);
+    }
+
+    /** Returns true if any piece of <code>byColor</code> attacks given square */
+    public boolean isSquareAttacked(int square, int byColor){
+        int offset = byColor * 6;
+        if((PAWN_ATTACKS[byColor ^ 1][square] & m_pieces[offset + PAWN]) != 0) return true;
+        if((KNIGHT_ATTACKS[square] & m_pieces[offset + KNIGHT]) != 0) return true;
+        if((KING_ATTACKS[square] & m_pieces[offset + KING]) != 0) return true;
+
+        long diagonalSliders = m_pieces[offset + BISHOP] | m_pieces[offset + QUEEN];
+        if(diagonalSliders != 0 && (MagicBitboards.getBishopAttacks(square, m_occupancy) & diagonalSliders) != 0)
+            return true;
+        long straightSliders = m_pieces[offset + ROOK] | m_pieces[offset + QUEEN];
+        return straightSliders != 0 && (MagicBitboards.getRookAttacks(square, m_occupancy) & straightSliders) != 0;
+    }
+
+    /** Returns pieces of <code>byColor</code> that attack given square if the board had given occupancy */
+    private long getAttackers(int square, int byColor, long occupancy){
+        int offset = byColor * 6;
+        long diagonalSliders = m_pieces[offset + BISHOP] | m_pieces[offset + QUEEN];
+        long straightSliders = m_pieces[offset + ROOK] | m_pieces[offset + QUEEN];
+        return (PAWN_ATTACKS[byColor ^ 1][square] & m_pieces[offset + PAWN])
+               | (KNIGHT_ATTACKS[square] & m_pieces[offset + KNIGHT])
+               | (KING_ATTACKS[square] & m_pieces[offset + KING])
+               | (MagicBitboards.getBishopAttacks(square, occupancy) & diagonalSliders)
+               | (MagicBitboards.getRookAttacks(square, occupancy) & straightSliders);
+    }
+
+    /**
+     * <a href="https://www.chessprogramming.org/Static_Exchange_Evaluation">Static exchange evaluation</a>.
+     * After given move both sides keep capturing on its target square with their least valuable attacker, a slider
+     * behind a piece that has captured joins the exchange once the piece is gone. Either side can stop capturing
+     * instead of losing material. Pins and checks are ignored.
+     *
+     * @return material the side to move wins with given move, negative if it loses material
+     */
+    public int getExchangeGain(int move){
+        int from = getFrom(move), to = getTo(move);
+        int[] gains = m_exchangeGains;
+        long occupancy = m_occupancy ^ (1L << from);
+        int attackerValue = TYPES[getPieceType(m_squares[from])].getValue();
+        if(getFlag(move) == EN_PASSANT){
+            gains[0] = TYPES[PAWN].getValue();
+            occupancy ^= 1L << (to + (m_sideToMove == WHITE ? 8 : -8));
+        }else gains[0] = m_squares[to] == EMPTY ? 0 : TYPES[getPieceType(m_squares[to])].getValue();
+        if(isPromotion(move)){
+            attackerValue = TYPES[getPromotionType(move)].getValue();
+            gains[0] += attackerValue - TYPES[PAWN].getValue();
+        }
+
+        int side = m_sideToMove, depth = 0;
+        while(true){
+            ++depth;
+            // Score if the piece that has just captured is captured back
+            gains[depth] = attackerValue - gains[depth - 1];
+
+            side ^= 1;
+            // Pieces that have already captured are not in the occupancy, sliders behind them attack the square now
+            long attackers = getAttackers(to, side, occupancy) & occupancy;
+            if(attackers == 0)
+                break;
+            int type = PAWN;
+            while((attackers & m_pieces[pieceOf(side, type)]) == 0)
+                --type;
+            // King can't capture a defended piece
+            if(type == KING && (getAttackers(to, side ^ 1, occupancy) & occupancy) != 0)
+                break;
+            occupancy ^= Long.lowestOneBit(attackers & m_pieces[pieceOf(side, type)]);
+            attackerValue = TYPES[type].getValue();
+        }
+
+        // Last entry is a capture that has not happened, every side picks the better of capturing and stopping
+        while(--depth > 0)
+            gains[depth - 1] = -Math.max(-gains[depth - 1], gains[depth]);
+        return gains[0];
+    }
+
+    /** Returns pieces of the side to move that can't leave the line between their king and an enemy slider */
+    private long getPinnedPieces(int king){
+        int us = m_sideToMove, them = us ^ 1;
+        long enemy = m_colorOccupancy[them];
+        // Enemy sliders that would attack the king if none of our pieces were in the way
+        long snipers = (MagicBitboards.getRookAttacks(king, enemy)
+                        & (m_pieces[pieceOf(them, ROOK)] | m_pieces[pieceOf(them, QUEEN)]))
+                       | (MagicBitboards.getBishopAttacks(king, enemy)
+                          & (m_pieces[pieceOf(them, BISHOP)] | m_pieces[pieceOf(them, QUEEN)]));
+        long pinned = 0L;
+        while(snipers != 0){
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long blockers = BETWEEN[king][sniper] & m_occupancy;
+            if(Long.bitCount(blockers) == 1)
+                pinned |= blockers & m_colorOccupancy[us];
+        }
+        return pinned;
+    }
+
+    private void putPiece(int square, int piece){
+        long squareBit = 1L << square;
+        m_pieces[piece] |= squareBit;
+        m_colorOccupancy[getPieceColor(piece)] |= squareBit;
+        m_occupancy |= squareBit;
+        m_squares[square] = piece;
+        m_key ^= Zobrist.getPieceKey(piece, square);
+        if(getPieceType(piece) == PAWN)
+            m_pawnKey ^= Zobrist.getPieceKey(piece, square);
+        m_score += PieceSquareTables.SCORES[piece][square];
+        m_phase += PieceSquareTables.PHASES[piece];
+    }
+
+    private void removePiece(int square){
+        long squareBit = 1L << square;
+        int piece = m_squares[square];
+        m_pieces[piece] &= ~squareBit;
+        m_colorOccupancy[getPieceColor(piece)] &= ~squareBit;
+        m_occupancy &= ~squareBit;
+        m_squares[square] = EMPTY;
+        m_key ^= Zobrist.getPieceKey(piece, square);
+        if(getPieceType(piece) == PAWN)
+            m_pawnKey ^= Zobrist.getPieceKey(piece, square);
+        m_score -= PieceSquareTables.SCORES[piece][square];
+        m_phase -= PieceSquareTables.PHASES[piece];
+    }
+
+    private void shiftPiece(int from, int to){
+        int piece = m_squares[from];
+        removePiece(from);
+        putPiece(to, piece);
+    }
+
+    /** Squares of the rook before and after castling, indexed by king destination square */
+    private static int castlingRookFrom(int kingTo){
+        return switch(kingTo){
+            case 62 -> 63;
+            case 58 -> 56;
+            case 6 -> 7;
+            default -> 0;
+        };
+    }
+
+    private static int castlingRookTo(int kingTo){
+        return switch(kingTo){
+            case 62 -> 61;
+            case 58 -> 59;
+            case 6 -> 5;
+            default -> 3;
+        };
+    }
+
+    /** Makes a move generated by this position, the move is assumed to be at least pseudo legal */
+    public void makeMove(int move){
+        int from = getFrom(move), to = getTo(move), flag = getFlag(move);
+        int us = m_sideToMove;
+        int movedPiece = m_squares[from];
+        int captured = EMPTY;
+
+        m_castlingHistory[m_historyCount] = m_castlingRights;
+        m_enpassantHistory[m_historyCount] = m_enpassantSquare;
+        m_halfMovesHistory[m_historyCount] = m_halfMoves;
+        m_keyHistory[m_historyCount] = m_key;
+
+        ++m_halfMoves;
+        m_key ^= Zobrist.getEnpassantKey(m_enpassantSquare) ^ Zobrist.getCastlingKey(m_castlingRights) ^ Zobrist.SIDE;
+        m_enpassantSquare = -1;
+
+        if(flag == EN_PASSANT){
+            int capturedSquare = us == WHITE ? to + 8 : to - 8;
+            captured = m_squares[capturedSquare];
+            removePiece(capturedSquare);
+        }else if((flag & CAPTURE) != 0){
+            captured = m_squares[to];
+            removePiece(to);
+        }
+        m_capturedHistory[m_historyCount] = captured;
+        ++m_historyCount;
+
+        if((flag & PROMOTION) != 0){
+            removePiece(from);
+            putPiece(to, pieceOf(us, PROMOTION_PIECES[flag & 3]));
+        }else shiftPiece(from, to);
+
+        if(flag == SHORT_CASTLE || flag == LONG_CASTLE)
+            shiftPiece(castlingRookFrom(to), castlingRookTo(to));
+        else if(flag == DOUBLE_PUSH)
+            m_enpassantSquare = (from + to) / 2;
+
+        if(captured != EMPTY || getPieceType(movedPiece) == PAWN)
+            m_halfMoves = 0;
+        m_castlingRights &= CASTLING_MASK[from] & CASTLING_MASK[to];
+        m_key ^= Zobrist.getEnpassantKey(m_enpassantSquare) ^ Zobrist.getCastlingKey(m_castlingRights);
+
+        if(us == BLACK)
+            ++m_fullMoves;
+        m_sideToMove = us ^ 1;
+    }
+
+    /** Passes the turn to the opponent without moving, used by null move pruning. Side to move can't be in check */
+    public void makeNullMove(){
+        m_castlingHistory[m_historyCount] = m_castlingRights;
+        m_enpassantHistory[m_historyCount] = m_enpassantSquare;
+        m_halfMovesHistory[m_historyCount] = m_halfMoves;
+        m_keyHistory[m_historyCount] = m_key;
+        m_capturedHistory[m_historyCount] = EMPTY;
+        ++m_historyCount;
+
+        // Positions before a null move are not repeated by the moves after it, it ends the search for repetitions
+        m_halfMoves = 0;
+        m_key ^= Zobrist.getEnpassantKey(m_enpassantSquare) ^ Zobrist.SIDE;
+        m_enpassantSquare = -1;
+        m_sideToMove ^= 1;
+    }
+
+    /** Takes back a null move, it has to be the last move made */
+    public void unmakeNullMove(){
+        m_sideToMove ^= 1;
+        --m_historyCount;
+        m_enpassantSquare = m_enpassantHistory[m_historyCount];
+        m_halfMoves = m_halfMovesHistory[m_historyCount];
+        m_key = m_keyHistory[m_historyCount];
+    }
+
+    /** Takes back a move, it has to be the last move made with <code>makeMove</code> */
+    public void unmakeMove(int move){
+        int from = getFrom(move), to = getTo(move), flag = getFlag(move);
+        m_sideToMove ^= 1;
+        int us = m_sideToMove;
+        if(us == BLACK)
+            --m_fullMoves;
+
+        --m_historyCount;
+        m_castlingRights = m_castlingHistory[m_historyCount];
+        m_enpassantSquare = m_enpassantHistory[m_historyCount];
+        m_halfMoves = m_halfMovesHistory[m_historyCount];
+        int captured = m_capturedHistory[m_historyCount];
+
+        if((flag & PROMOTION) != 0){
+            removePiece(to);
+            putPiece(from, pieceOf(us, PAWN));
+        }else shiftPiece(to, from);
+
+        if(flag == SHORT_CASTLE || flag == LONG_CASTLE)
+            shiftPiece(castlingRookTo(to), castlingRookFrom(to));
+
+        if(flag == EN_PASSANT)
+            putPiece(us == WHITE ? to + 8 : to - 8, captured);
+        else if(captured != EMPTY)
+            putPiece(to, captured);
+        // Pieces put back above changed the key too, so the saved one is restored last
+        m_key = m_keyHistory[m_historyCount];
+    }
+
+    /** Returns all legal moves of the side to move */
+    public int[] generateLegalMoves(){
+        int[] moves = new int[MAX_MOVES];
+        return Arrays.copyOf(moves, generateLegalMoves(moves));
+    }
+
+    /**
+     * Writes all legal moves of the side to move to given buffer, nothing is allocated.
+     * Pieces giving check and pinned pieces are found once, so only legal moves are generated: if the king is in
+     * check, other pieces can only capture the checker or block it, pinned pieces can only move along the pin and the
+     * king only moves to squares that are not attacked.
+     *
+     * @param moves buffer of at least <code>MAX_MOVES</code> length
+     *
+     * @return number of moves written to <code>moves</code>
+     */
+    public int generateLegalMoves(int[] moves){
+        int us = m_sideToMove, them = us ^ 1;
+        int king = getKingSquare(us);
+        long checkers = getAttackers(king, them, m_occupancy);
+
+        int count = generateKingMoves(moves, 0, king);
+        // Only king can escape a double check
+        if(Long.bitCount(checkers) > 1)
+            return count;
+
+        long targets = ~m_colorOccupancy[us];
+        if(checkers != 0)
+            targets &= checkers | BETWEEN[king][Long.numberOfTrailingZeros(checkers)];
+        else count += generateCastlingMoves(moves, count);
+
+        long pinned = getPinnedPieces(king);
+        count = generatePawnMoves(moves, count, king, targets, pinned);
+
+        for(int type = QUEEN; type < PAWN; ++type){
+            long pieces = m_pieces[pieceOf(us, type)];
+            while(pieces != 0){
+                int from = Long.numberOfTrailingZeros(pieces);
+                pieces &= pieces - 1;
+                long pieceTargets = switch(type){
+                    case KNIGHT -> KNIGHT_ATTACKS[from];
+                    case BISHOP -> MagicBitboards.getBishopAttacks(from, m_occupancy);
+                    case ROOK -> MagicBitboards.getRookAttacks(from, m_occupancy);
+                    default -> MagicBitboards.getQueenAttacks(from, m_occupancy);
+                } & targets;
+                if((pinned & (1L << from)) != 0)
+                    pieceTargets &= LINE[king][from];
+                count = addMoves(moves, count, from, pieceTargets);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Writes legal captures and promotions to a queen to given buffer, the moves quiescence search looks at.
+     * Underpromotions are left out, they are almost never better than a queen.
+     *
+     * @return number of moves written to <code>moves</code>
+     */
+    public int generateLegalCaptures(int[] moves){
+        int count = generateLegalMoves(moves);
+        int captures = 0;
+        for(int i = 0; i < count; ++i){
+            int move = moves[i];
+            if(isPromotion(move) ? getPromotionType(move) == QUEEN : isCapture(move))
+                moves[captures++] = move;
+        }
+        return captures;
+    }
+
+    /** Adds moves from given square to every target, captures are flagged */
+    private int addMoves(int[] moves, int count, int from, long targets){
+        while(targets != 0){
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            moves[count++] = createMove(from, to, m_squares[to] != EMPTY ? CAPTURE : QUIET);
+        }
+        return count;
+    }
+
+    /** King can move to any square that is not attacked once it has left its square */
+    private int generateKingMoves(int[] moves, int count, int king){
+        int them = m_sideToMove ^ 1;
+        long occupancy = m_occupancy ^ (1L << king);
+        long targets = KING_ATTACKS[king] & ~m_colorOccupancy[m_sideToMove];
+        while(targets != 0){
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            if(getAttackers(to, them, occupancy) == 0)
+                moves[count++] = createMove(king, to, m_squares[to] != EMPTY ? CAPTURE : QUIET);
+        }
+        return count;
+    }
+
+    /**
+     * @param targets squares pawns may move to, limited to the checker and squares between it and king if in check
+     * @param pinned  pieces that can only move along the line going through them and king
+     */
+    private int generatePawnMoves(int[] moves, int count, int king, long targets, long pinned){
+        int us = m_sideToMove;
+        int forward = us == WHITE ? -8 : 8;
+        int startRow = us == WHITE ? 6 : 1, promotionRow = us == WHITE ? 0 : 7;
+        long pawns = m_pieces[pieceOf(us, PAWN)];
+        while(pawns != 0){
+            int from = Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+            long allowed = targets;
+            if((pinned & (1L << from)) != 0)
+                allowed &= LINE[king][from];
+
+            int to = from + forward;
+            if(m_squares[to] == EMPTY){
+                if((allowed & (1L << to)) != 0){
+                    if(to / 8 == promotionRow){
+                        for(int promotion = 0; promotion < 4; ++promotion)
+                            moves[count++] = createMove(from, to, PROMOTION | promotion);
+                    }else moves[count++] = createMove(from, to, QUIET);
+                }
+                if(from / 8 == startRow && m_squares[to + forward] == EMPTY && (allowed & (1L << (to + forward))) != 0)
+                    moves[count++] = createMove(from, to + forward, DOUBLE_PUSH);
+            }
+
+            long captures = PAWN_ATTACKS[us][from] & m_colorOccupancy[us ^ 1] & allowed;
+            while(captures != 0){
+                to = Long.numberOfTrailingZeros(captures);
+                captures &= captures - 1;
+                if(to / 8 == promotionRow){
+                    for(int promotion = 0; promotion < 4; ++promotion)
+                        moves[count++] = createMove(from, to, PROMOTION | CAPTURE | promotion);
+                }else moves[count++] = createMove(from, to, CAPTURE);
+            }
+
+            // En passant removes two pawns from a row at once, so it is simply tried on the board
+            if(m_enpassantSquare != -1 && (PAWN_ATTACKS[us][from] & (1L << m_enpassantSquare)) != 0){
+                int move = createMove(from, m_enpassantSquare, EN_PASSANT);
+                makeMove(move);
+                if(!isSquareAttacked(king, us ^ 1))
+                    moves[count++] = move;
+                unmakeMove(move);
+            }
+        }
+        return count;
+    }
+
+    private int generateCastlingMoves(int[] moves, int count){
+        int us = m_sideToMove, them = us ^ 1;
+        int shortRight = us == WHITE ? WHITE_SHORT_CASTLE : BLACK_SHORT_CASTLE;
+        int longRight = us == WHITE ? WHITE_LONG_CASTLE : BLACK_LONG_CASTLE;
+        if((m_castlingRights & (shortRight | longRight)) == 0)
+            return 0;
+
+        int king = us == WHITE ? 60 : 4;
+        if(isSquareAttacked(king, them))
+            return 0;
+
+        int added = 0;
+        if((m_castlingRights & shortRight) != 0 && m_squares[king + 1] == EMPTY && m_squares[king + 2] == EMPTY
+           && !isSquareAttacked(king + 1, them) && !isSquareAttacked(king + 2, them))
+            moves[count + added++] = createMove(king, king + 2, SHORT_CASTLE);
+
+        if((m_castlingRights & longRight) != 0 && m_squares[king - 1] == EMPTY && m_squares[king - 2] == EMPTY
+           && m_squares[king - 3] == EMPTY && !isSquareAttacked(king - 1, them) && !isSquareAttacked(king - 2, them))
+            moves[count + added++] = createMove(king, king - 2, LONG_CASTLE);
+        return added;
+    }
+
+    @Override
+    public boolean equals(Object o){
+        if(this == o) return true;
+        if(o == null || getClass() != o.getClass()) return false;
+        Position position = (Position) o;
+        return m_sideToMove == position.m_sideToMove && m_castlingRights == position.m_castlingRights
+               && m_enpassantSquare == position.m_enpassantSquare && Arrays.equals(m_pieces, position.m_pieces);
+    }
+
+    @Override
+    public int hashCode(){
+        return Long.hashCode(m_key);
+    }
+
+    @Override
+    public String toString(){
+        StringBuilder notation = new StringBuilder();
+        for(int square = 0; square < 64; ++square){
+            int piece = m_squares[square];
+            if(piece != EMPTY){
+                char ch = toType(piece).getCharacter();
+                if(getPieceColor(piece) == BLACK)
+                    ch = Character.toLowerCase(ch);
+                notation.append(ch).append(" ");
+            }else
+                notation.append("- ");
+            if(square % 8 == 7)
+                notation.append('\n');
+        }
+        return notation.toString();
+    }
+}
@@ -0,0 +1,1046 @@
+package board;
+
+import pieces.PieceAttributes;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Computer player search. Works only on a headless <code>Position</code>, so no Swing component is touched while
+ * future moves are calculated.
+ * <p>
+ * Search can use more threads with <a href="https://www.chessprogramming.org/Lazy_SMP">Lazy SMP</a>. Helper threads
+ * search the same root on their own copies of the position, results are shared only through the transposition table.
+ * Move found by the main thread is played.
+ * <p>
+ * Deterministic mode splits root moves between threads of a <code>ForkJoinPool</code> instead. Every root move is
+ * searched by its own task with its own transposition table and a window that doesn't depend on other tasks, so
+ * a search to a fixed depth always returns the same move no matter how threads were scheduled.
+ */
+public class SearchController{
+    /** Used as a time limit when the search can take as long as it needs */
+    public static final long NO_TIME_LIMIT = Long.MAX_VALUE;
+    /** Clock is checked once per this many nodes */
+    private static final int TIME_CHECK_INTERVAL = 1024;
+    /** Longest line from the root that can be searched */
+    private static final int MAX_PLY = 128;
+    /** Score of giving mate at the root, mate in n plies is scored MATE_SCORE - n so shorter mates are preferred */
+    public static final int MATE_SCORE = 32000;
+    /** Scores above this one are mates, scores below its negation are mates of the side to move */
+    private static final int MATE_BOUND = MATE_SCORE - MAX_PLY;
+    /** Bigger than any score, bounds the first window */
+    private static final int INFINITY = MATE_SCORE + 1;
+    /** Null move is tried only with at least this depth left */
+    private static final int NULL_MOVE_DEPTH = 3;
+    /** Null move cutoffs with at least this depth left are verified by a reduced search without a null move */
+    private static final int NULL_MOVE_VERIFICATION_DEPTH = 6;
+    /** Quiet moves are reduced only with at least this depth left and after this many moves have been searched */
+    private static final int REDUCTION_DEPTH = 3;
+    private static final int REDUCTION_MOVES = 3;
+    /** Half of the first aspiration window around the score of the previous iteration */
+    private static final int ASPIRATION_WINDOW = 30;
+    /** Shallower iterations are searched with the full window, their scores change too much */
+    private static final int ASPIRATION_DEPTH = 4;
+    /** Capture is not searched in quiescence if even winning this much more than the captured piece can't raise alpha */
+    private static final int DELTA_MARGIN = 200;
+    // Move ordering scores, every group of moves is tried before the next one
+    private static final int TABLE_MOVE_SCORE = 1 << 30;
+    private static final int CAPTURE_SCORE = 1 << 28;
+    private static final int KILLER_SCORE = 1 << 27;
+    /** History scores are halved once any of them reaches this, so they stay below killers */
+    private static final int MAX_HISTORY = 1 << 20;
+    /** Numbers of threads compared by <code>checkDeterminism</code> */
+    private static final int[] CHECKED_THREADS = {1, 4, 8};
+
+    /** Position that is searched, moves are made and unmade on it in place */
+    private final Position m_position;
+    /**
+     * Results of positions searched before, shared by all searches of a game. Root move tasks of a deterministic
+     * search replace it with the table of their move
+     */
+    private TranspositionTable m_transpositionTable;
+    /** Pawn structure scores, shared by all searches of a game like the transposition table */
+    private final PawnHashTable m_pawnHashTable;
+    /** Evaluator of this thread */
+    private final PositionEvaluationController m_evaluator;
+    /** Moves generated at every ply, reused so no memory is allocated while searching */
+    private final int[][] m_moveBuffers = new int[MAX_PLY][Position.MAX_MOVES];
+    /** Ordering scores of moves in <code>m_moveBuffers</code> */
+    private final int[][] m_moveScores = new int[MAX_PLY][Position.MAX_MOVES];
+    /** Two last quiet moves that caused a cutoff at every ply, likely to cause one in sibling positions too */
+    private final int[][] m_killers = new int[MAX_PLY][2];
+    /** Quiet moves causing cutoffs anywhere in the tree, indexed by piece and target square */
+    private final int[][] m_history = new int[12][64];
+
+    /** Score of the last finished root search, from the point of view of the side to move */
+    private int m_rootScore = 0;
+    /** Nodes visited by the current search, not counting quiescence search */
+    private long m_nodes = 0;
+    /** Nodes visited by quiescence search */
+    private long m_quiescenceNodes = 0;
+    /** Time the current search has started at, from <code>System.nanoTime</code> */
+    private long m_startTime = 0;
+    /** Time in milliseconds after which the search is aborted */
+    private long m_hardTimeLimit = NO_TIME_LIMIT;
+    /** True if the search has been aborted, every node returns immediately then. Can be set from another thread */
+    private volatile boolean m_stopped = false;
+
+    /** Number of threads searching the same position, including the main one */
+    private int m_threads = 1;
+    /** Plies added to every iteration, so helpers don't search exactly the same tree as the main thread */
+    private int m_depthOffset = 0;
+    /** Searches run by helper threads, stopped together with this search */
+    private SearchController[] m_helpers = new SearchController[0];
+    /** Helpers of a deterministic search that are not running any root move task */
+    private final Queue<SearchController> m_idleWorkers = new ConcurrentLinkedQueue<>();
+    /** Transposition table of every root move of a deterministic search */
+    private final Map<Integer, TranspositionTable> m_rootMoveTables = new HashMap<>();
+    /** True if root moves are split between threads and the result doesn't depend on their timing */
+    private boolean m_isDeterministic = false;
+    /** True if null move pruning is used */
+    private boolean m_isNullMovePruning = true;
+    /** True if late quiet moves are searched to a reduced depth first */
+    private boolean m_isLateMoveReduction = true;
+    /** True if every finished iteration is printed, <code>createHelper</code> doesn't copy it to helpers */
+    private boolean m_isVerbose = false;
+
+    public SearchController(Position position, TranspositionTable transpositionTable, PawnHashTable pawnHashTable){
+        m_position = position;
+        m_transpositionTable = transpositionTable;
+        m_pawnHashTable = pawnHashTable;
+        m_evaluator = new PositionEvaluationController(pawnHashTable);
+    }
+
+    /**
+     * Aborts the search as soon as possible, may be called from any thread. <code>findBestMove</code> then returns
+     * the best move found so far. Stopped controller can't be used for another search.
+     */
+    public void stop(){
+        m_stopped = true;
+        for(SearchController helper : m_helpers)
+            helper.stop();
+    }
+
+    /** Returns score of the move found by the last finished iteration, from the point of view of the side to move */
+    public int getScore(){return m_rootScore;}
+
+    /** @param threads number of threads used by the search, 1 means no helper threads */
+    public void setThreads(int threads){
+        m_threads = Math.max(threads, 1);
+    }
+
+    /**
+     * @param isDeterministic true if root moves should be split between threads instead of using Lazy SMP. Every root
+     *                        move then gets its own table, the size of the given transposition table is split between
+     *                        them and the table itself only keeps the best move of the root
+     */
+    public void setDeterministic(boolean isDeterministic){
+        m_isDeterministic = isDeterministic;
+    }
+
+    /** Turns null move pruning on or off, so its effect on the search can be measured */
+    public void setNullMovePruning(boolean isNullMovePruning){
+        m_isNullMovePruning = isNullMovePruning;
+    }
+
+    /** @param isVerbose true if score, nodes and time of every iteration should be printed */
+    public void setVerbose(boolean isVerbose){
+        m_isVerbose = isVerbose;
+    }
+
+    /** Turns late move reductions on or off */
+    public void setLateMoveReduction(boolean isLateMoveReduction){
+        m_isLateMoveReduction = isLateMoveReduction;
+    }
+
+    /**
+     * Returns time the search of one move should take. No new iteration is started after half of it, the next
+     * iteration would likely take longer than the rest.
+     *
+     * @param remainingTime time left on the clock of the side to move in milliseconds
+     * @param increment     time added after every move in milliseconds
+     */
+    public static long getSoftTimeLimit(long remainingTime, long increment){
+        // Assume the game will last about 40 more moves
+        return Math.max(remainingTime / 40 + increment * 3 / 4, 10);
+    }
+
+    /** Returns time after which search is aborted even in the middle of an iteration */
+    public static long getHardTimeLimit(long remainingTime, long increment){
+        // Keep some time for playing the move on the board
+        long limit = Math.min(getSoftTimeLimit(remainingTime, increment) * 4, remainingTime / 5) - 50;
+        return Math.max(limit, getSoftTimeLimit(remainingTime, increment));
+    }
+
+    /**
+     * <a href="https://www.chessprogramming.org/Iterative_Deepening">Iterative deepening</a>. Searches depth 1, 2, ...
+     * until <code>maxDepth</code> is reached or time runs out. Best move of every iteration is searched first in the
+     * next one, moves deeper in the tree are ordered by the transposition table filled by earlier iterations.
+     *
+     * @param maxDepth      deepest iteration to search
+     * @param softTimeLimit time in milliseconds the search should take, no new iteration is started after half of it
+     * @param hardTimeLimit search is aborted after this many milliseconds
+     *
+     * @return the best move found or <code>Position.NO_MOVE</code> if there are no legal moves
+     */
+    public int findBestMove(int maxDepth, long softTimeLimit, long hardTimeLimit){
+        prepareSearch(hardTimeLimit);
+        int[] rootMoves = generateRootMoves();
+        if(rootMoves.length == 0)
+            return Position.NO_MOVE;
+
+        if(m_isDeterministic){
+            ForkJoinPool pool = new ForkJoinPool(m_threads);
+            createWorkers();
+            try{
+                return iterativeDeepening(rootMoves, maxDepth, softTimeLimit, pool);
+            }finally{
+                pool.shutdownNow();
+            }
+        }
+
+        Thread[] helperThreads = startHelpers(maxDepth);
+        int bestMove = iterativeDeepening(rootMoves, maxDepth, softTimeLimit, null);
+        stopHelpers(helperThreads);
+        return bestMove;
+    }
+
+    /**
+     * <a href="https://www.chessprogramming.org/Multipv">Multi-PV</a> analysis, finds the best <code>lineCount</code>
+     * root moves together with their scores and principal variations. Every iteration searches the root once per
+     * line, each pass without the moves found by the earlier ones, so the second pass finds the second best move and
+     * so on. Passes share the transposition table, which makes them much cheaper than separate searches.
+     * <p>
+     * Deterministic mode finds all lines in one pass of <code>searchRootParallel</code> instead, the best moves of
+     * the previous iteration bound the window of all other moves. Principal variations are read from the table of
+     * their root move, so the lines are always the same.
+     *
+     * @param lineCount number of moves to find, all legal moves are found if there are fewer of them
+     *
+     * @return lines of the deepest finished iteration, the best one first. Empty if there are no legal moves or the
+     * search was stopped before the first iteration finished
+     */
+    public AnalysisLine[] analyze(int maxDepth, int lineCount, long softTimeLimit, long hardTimeLimit){
+        prepareSearch(hardTimeLimit);
+        int[] rootMoves = generateRootMoves();
+        lineCount = Math.min(lineCount, rootMoves.length);
+        if(lineCount <= 0)
+            return new AnalysisLine[0];
+
+        if(m_isDeterministic){
+            ForkJoinPool pool = new ForkJoinPool(m_threads);
+            createWorkers();
+            try{
+                return analyzeIteratively(rootMoves, maxDepth, lineCount, softTimeLimit, pool);
+            }finally{
+                pool.shutdownNow();
+            }
+        }
+
+        Thread[] helperThreads = startHelpers(maxDepth);
+        AnalysisLine[] lines = analyzeIteratively(rootMoves, maxDepth, lineCount, softTimeLimit, null);
+        stopHelpers(helperThreads);
+        return lines;
+    }
+
+    private void prepareSearch(long hardTimeLimit){
+        m_startTime = System.nanoTime();
+        m_hardTimeLimit = hardTimeLimit;
+        clearSearchState();
+    }
+
+    /** Clears node counters and killers and history learned by the previous search */
+    private void clearSearchState(){
+        m_nodes = 0;
+        m_quiescenceNodes = 0;
+        for(int[] killers : m_killers)
+            Arrays.fill(killers, Position.NO_MOVE);
+        for(int[] history : m_history)
+            Arrays.fill(history, 0);
+    }
+
+    /**
+     * Starts helper searches, each on its own copy of the position. Every other helper searches one ply deeper.
+     * Helpers are not limited by time, they run until the main search stops them.
+     */
+    private Thread[] startHelpers(int maxDepth){
+        m_helpers = new SearchController[m_threads - 1];
+        Thread[] helperThreads = new Thread[m_threads - 1];
+        for(int i = 0; i < helperThreads.length; ++i){
+            SearchController helper = createHelper();
+            helper.m_depthOffset = (i + 1) % 2;
+            m_helpers[i] = helper;
+
+            helperThreads[i] = new Thread(() -> helper.iterativeDeepening(helper.generateRootMoves(), maxDepth,
+                                                                           NO_TIME_LIMIT, null), "Search helper " + i);
+            helperThreads[i].setDaemon(true);
+            helperThreads[i].start();
+        }
+        // Search could have been stopped before helpers existed
+        if(m_stopped)
+            stop();
+        return helperThreads;
+    }
+
+    /**
+     * Creates searches that root move tasks of a deterministic search run on, one for every thread of the pool.
+     * A task takes an idle one and gives it back when it is done, so nothing is allocated for every task.
+     */
+    private void createWorkers(){
+        m_helpers = new SearchController[m_threads];
+        for(int i = 0; i < m_threads; ++i){
+            m_helpers[i] = createHelper();
+            m_helpers[i].m_hardTimeLimit = m_hardTimeLimit;
+            m_idleWorkers.add(m_helpers[i]);
+        }
+        // Search could have been stopped before workers existed
+        if(m_stopped)
+            stop();
+    }
+
+    private void stopHelpers(Thread[] helperThreads){
+        for(SearchController helper : m_helpers)
+            helper.stop();
+        for(Thread thread : helperThreads){
+            try{
+                thread.join();
+            }catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /** Creates a search of a copy of the position, it shares tables and settings with this search */
+    private SearchController createHelper(){
+        SearchController helper = new SearchController(new Position(m_position), m_transpositionTable, m_pawnHashTable);
+        helper.m_startTime = m_startTime;
+        helper.m_isNullMovePruning = m_isNullMovePruning;
+        helper.m_isLateMoveReduction = m_isLateMoveReduction;
+        return helper;
+    }
+
+    /**
+     * Searches root moves with increasing depth until <code>maxDepth</code> is reached or the search is stopped
+     *
+     * @param pool threads root moves are split between or null if they are searched by this thread
+     */
+    private int iterativeDeepening(int[] rootMoves, int maxDepth, long softTimeLimit, ForkJoinPool pool){
+        int bestMove = rootMoves[0];
+        for(int depth = 1; depth <= maxDepth; ++depth){
+            moveToFront(rootMoves, rootMoves.length, bestMove);
+            int move = (pool == null) ? searchAspiration(rootMoves, depth + m_depthOffset)
+                    : searchRootParallel(rootMoves, depth, pool);
+            if(m_isVerbose)
+                printIteration(depth, m_rootScore);
+            // Aborted iteration is only used if it has found a move better than the previous best move
+            if(move != Position.NO_MOVE)
+                bestMove = move;
+            if(m_stopped)
+                break;
+
+            // Next iteration is likely to take more time than all previous ones
+            long elapsed = getElapsedTime();
+            if(softTimeLimit != NO_TIME_LIMIT && elapsed >= softTimeLimit / 2)
+                break;
+        }
+        return bestMove;
+    }
+
+    /**
+     * Iterative deepening of <code>analyze</code>. Moves found by earlier passes of an iteration are kept at the front
+     * of <code>rootMoves</code> in the order they were found, the next pass searches only the rest. The next iteration
+     * then searches them in the same order. With a pool all lines are found by one pass.
+     *
+     * @param pool threads root moves are split between or null if they are searched by this thread
+     */
+    private AnalysisLine[] analyzeIteratively(int[] rootMoves, int maxDepth, int lineCount, long softTimeLimit,
+                                              ForkJoinPool pool){
+        AnalysisLine[] lines = new AnalysisLine[0];
+        for(int depth = 1; depth <= maxDepth; ++depth){
+            AnalysisLine[] depthLines = new AnalysisLine[lineCount];
+            if(pool != null){
+                int[] scores = new int[lineCount];
+                searchRootParallel(rootMoves, depth, lineCount, scores, pool);
+                for(int line = 0; line < lineCount && !m_stopped; ++line)
+                    depthLines[line] = new AnalysisLine(depth, scores[line], getPrincipalVariation(
+                            rootMoves[line], depth, m_rootMoveTables.get(rootMoves[line])));
+            }else{
+                for(int line = 0; line < lineCount; ++line){
+                    int[] remainingMoves = Arrays.copyOfRange(rootMoves, line, rootMoves.length);
+                    // Aspiration window is centered on the score this line had in the previous iteration
+                    if(line < lines.length)
+                        m_rootScore = lines[line].getScore();
+                    int move = searchAspiration(remainingMoves, depth);
+                    if(m_stopped)
+                        break;
+
+                    moveToIndex(rootMoves, line, move);
+                    depthLines[line] = new AnalysisLine(depth, m_rootScore, getPrincipalVariation(move, depth,
+                                                                                                  m_transpositionTable));
+                }
+            }
+            // Scores of an aborted iteration are not comparable, lines of the previous one are kept
+            if(m_stopped)
+                break;
+
+            // A later pass can find a better score than an earlier one, the next iteration starts with the best line
+            Arrays.sort(depthLines, (first, second) -> Integer.compare(second.getScore(), first.getScore()));
+            for(int line = 0; line < lineCount; ++line)
+                moveToIndex(rootMoves, line, depthLines[line].getMove());
+            lines = depthLines;
+            // Later passes have replaced the root entry stored by the first one
+            m_transpositionTable.store(m_position.getZobristKey(), lines[0].getMove(), depth,
+                                       TranspositionTable.EXACT, lines[0].getScore());
+            if(m_isVerbose)
+                printLines(depth, lines);
+
+            long elapsed = getElapsedTime();
+            if(softTimeLimit != NO_TIME_LIMIT && elapsed >= softTimeLimit / 2)
+                break;
+        }
+        return lines;
+    }
+
+    /**
+     * Returns the root move followed by the best moves stored in given transposition table. Entries can be replaced,
+     * so the line ends at the first position without a legal stored move or after <code>depth</code> moves.
+     */
+    private int[] getPrincipalVariation(int rootMove, int depth, TranspositionTable table){
+        int[] line = new int[Math.min(depth, MAX_PLY)];
+        int count = 0;
+        line[count++] = rootMove;
+        m_position.makeMove(rootMove);
+        // Repeated positions would make the line loop forever
+        while(count < line.length && !m_position.isRepetition()){
+            long entry = table.probe(m_position.getZobristKey());
+            if(entry == 0)
+                break;
+            int move = TranspositionTable.getMove(entry);
+            int[] possibleMoves = m_moveBuffers[count];
+            int movesCount = m_position.generateLegalMoves(possibleMoves);
+            if(indexOf(possibleMoves, movesCount, move) < 0)
+                break;
+            line[count++] = move;
+            m_position.makeMove(move);
+        }
+        for(int i = count - 1; i >= 0; --i)
+            m_position.unmakeMove(line[i]);
+        return Arrays.copyOf(line, count);
+    }
+
+    /** Returns legal moves of the side to move, the best move from the transposition table goes first */
+    private int[] generateRootMoves(){
+        int[] possibleMoves = m_position.generateLegalMoves();
+        int count = 0;
+        for(int move : possibleMoves){
+            // Board can only promote to a queen
+            if(Position.isPromotion(move) && Position.getPromotionType(move) != Position.QUEEN)
+                continue;
+            possibleMoves[count++] = move;
+        }
+        possibleMoves = Arrays.copyOf(possibleMoves, count);
+
+        long entry = m_transpositionTable.probe(m_position.getZobristKey());
+        if(entry != 0)
+            moveToFront(possibleMoves, possibleMoves.length, TranspositionTable.getMove(entry));
+        return possibleMoves;
+    }
+
+    /**
+     * <a href="https://www.chessprogramming.org/Aspiration_Windows">Aspiration windows</a>. Score of an iteration is
+     * usually close to the score of the previous one, so the root is searched with a narrow window around it first.
+     * Narrow window cuts more, if the score falls outside of it the window is widened and the root searched again.
+     *
+     * @return the best move or <code>Position.NO_MOVE</code> if search was aborted before any move has been searched
+     */
+    private int searchAspiration(int[] rootMoves, int depth){
+        int alpha = -INFINITY, beta = INFINITY;
+        int delta = ASPIRATION_WINDOW;
+        if(depth >= ASPIRATION_DEPTH){
+            alpha = Math.max(m_rootScore - delta, -INFINITY);
+            beta = Math.min(m_rootScore + delta, INFINITY);
+        }
+
+        int bestMove = Position.NO_MOVE;
+        while(true){
+            int move = searchRoot(rootMoves, depth, alpha, beta);
+            // Move that failed high is better than the previous best move, even if its score is not known yet
+            if(move != Position.NO_MOVE)
+                bestMove = move;
+            if(m_stopped)
+                return bestMove;
+
+            if(m_rootScore <= alpha)
+                alpha = Math.max(m_rootScore - delta, -INFINITY);
+            else if(m_rootScore >= beta)
+                beta = Math.min(m_rootScore + delta, INFINITY);
+            else return bestMove;
+            delta *= 2;
+            // Best move of a failed search is searched first again
+            moveToFront(rootMoves, rootMoves.length, bestMove);
+        }
+    }
+
+    /**
+     * Searches all root moves to given depth with principal variation search, see <code>search</code>. Score of the
+     * best move is left in <code>m_rootScore</code>, it is only a bound if it falls outside of the window.
+     *
+     * @return the best move or <code>Position.NO_MOVE</code> if no move has a score above alpha
+     */
+    private int searchRoot(int[] rootMoves, int depth, int alpha, int beta){
+        int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        int bestMove = Position.NO_MOVE;
+
+        for(int i = 0; i < rootMoves.length; ++i){
+            int move = rootMoves[i];
+            m_position.makeMove(move);
+            int score;
+            if(i == 0)
+                score = -search(depth - 1, 1, -beta, -alpha, true);
+            else{
+                score = -search(depth - 1, 1, -alpha - 1, -alpha, true);
+                if(score > alpha && score < beta)
+                    score = -search(depth - 1, 1, -beta, -alpha, true);
+            }
+            m_position.unmakeMove(move);
+            if(m_stopped)
+                break;
+
+            bestScore = Math.max(bestScore, score);
+            if(score > alpha){
+                alpha = score;
+                bestMove = move;
+                if(score >= beta)
+                    break;
+            }
+        }
+
+        if(!m_stopped){
+            m_rootScore = bestScore;
+            int bound = TranspositionTable.EXACT;
+            if(bestScore >= beta)
+                bound = TranspositionTable.LOWER_BOUND;
+            else if(bestScore <= originalAlpha)
+                bound = TranspositionTable.UPPER_BOUND;
+            m_transpositionTable.store(m_position.getZobristKey(), bestMove, depth, bound, bestScore);
+        }
+        return bestMove;
+    }
+
+    /**
+     * Searches every root move in its own task, see <code>searchRootParallel</code> with more lines
+     *
+     * @return the best move or <code>Position.NO_MOVE</code> if search was aborted before the first move has been
+     * searched
+     */
+    private int searchRootParallel(int[] rootMoves, int depth, ForkJoinPool pool){
+        int lines = searchRootParallel(rootMoves, depth, 1, new int[1], pool);
+        return lines > 0 ? rootMoves[0] : Position.NO_MOVE;
+    }
+
+    /**
+     * Searches every root move in its own task. The first <code>lineCount</code> moves, the best ones of the previous
+     * iteration, are searched with the full window first. All other moves are then searched with a window just below
+     * the lowest of their scores, so a move at least as good gets an exact score. Among moves with the same score the
+     * one earlier in the list is chosen.
+     * <p>
+     * Every root move has its own transposition table kept between iterations, together they take about as much memory
+     * as the table given to the constructor, but at least a megabyte each. Killers and history are cleared
+     * before every task, so a task never sees what another one has found. Windows don't depend on which tasks have
+     * finished first either, timing of the threads only decides when a task runs.
+     *
+     * @param lineScores filled with scores of the best moves, the moves themselves are moved to the front of
+     *                   <code>rootMoves</code> in the same order
+     *
+     * @return number of best moves found, less than <code>lineCount</code> only if search was aborted. 0 if it was
+     * aborted before the first moves were searched, no other move is known to be better than them then
+     */
+    private int searchRootParallel(int[] rootMoves, int depth, int lineCount, int[] lineScores, ForkJoinPool pool){
+        int[] scores = new int[rootMoves.length];
+        boolean[] isSearched = new boolean[rootMoves.length];
+        long[] nodes = new long[rootMoves.length], quiescenceNodes = new long[rootMoves.length];
+        TranspositionTable[] tables = new TranspositionTable[rootMoves.length];
+        int tableSize = Math.max(m_transpositionTable.getSizeInMegabytes() / rootMoves.length, 1);
+        for(int i = 0; i < rootMoves.length; ++i)
+            tables[i] = m_rootMoveTables.computeIfAbsent(rootMoves[i], move -> new TranspositionTable(tableSize));
+
+        int bound = -INFINITY;
+        for(int from = 0, to = lineCount; from < rootMoves.length && !m_stopped; from = to, to = rootMoves.length){
+            ForkJoinTask<?>[] futures = new ForkJoinTask<?>[to - from];
+            for(int i = from; i < to; ++i){
+                final int index = i, window = bound;
+                futures[i - from] = pool.submit(() -> {
+                    SearchController worker = m_idleWorkers.poll();
+                    worker.m_transpositionTable = tables[index];
+                    worker.clearSearchState();
+                    worker.m_position.makeMove(rootMoves[index]);
+                    scores[index] = -worker.search(depth - 1, 1, -INFINITY, -(window - 1), true);
+                    worker.m_position.unmakeMove(rootMoves[index]);
+                    isSearched[index] = !worker.m_stopped;
+                    nodes[index] = worker.m_nodes;
+                    quiescenceNodes[index] = worker.m_quiescenceNodes;
+                    m_idleWorkers.add(worker);
+                });
+            }
+            for(int i = from; i < to; ++i){
+                futures[i - from].join();
+                m_nodes += nodes[i];
+                m_quiescenceNodes += quiescenceNodes[i];
+                // Task stopped by its own time check, the others have to be stopped too
+                if(!isSearched[i])
+                    stop();
+            }
+
+            bound = INFINITY;
+            for(int i = 0; i < lineCount; ++i)
+                bound = Math.min(bound, scores[i]);
+        }
+
+        for(int i = 0; i < lineCount; ++i){
+            if(!isSearched[i])
+                return 0;
+        }
+        // Moves below the bound only have an upper bound of their score, the first moves are better
+        int[] lineMoves = new int[lineCount];
+        int lines = 0;
+        for(; lines < lineCount; ++lines){
+            int best = -1;
+            for(int i = 0; i < rootMoves.length; ++i){
+                if(isSearched[i] && (i < lineCount || scores[i] >= bound) && (best == -1 || scores[i] > scores[best]))
+                    best = i;
+            }
+            if(best == -1)
+                break;
+            lineMoves[lines] = rootMoves[best];
+            lineScores[lines] = scores[best];
+            isSearched[best] = false;
+        }
+        for(int line = 0; line < lines; ++line)
+            moveToIndex(rootMoves, line, lineMoves[line]);
+
+        if(!m_stopped){
+            m_rootScore = lineScores[0];
+            m_transpositionTable.store(m_position.getZobristKey(), rootMoves[0], depth, TranspositionTable.EXACT,
+                                       lineScores[0]);
+        }
+        return lines;
+    }
+
+    private void printLines(int depth, AnalysisLine[] lines){
+        printIteration(depth, lines[0].getScore());
+        for(int i = 0; i < lines.length; ++i)
+            System.out.println((i + 1) + ". " + lines[i]);
+    }
+
+    private void printIteration(int depth, int score){
+        System.out.println("Depth: " + depth + " score: " + score + " nodes: " + m_nodes + " qnodes: "
+                           + m_quiescenceNodes + " time: " + getElapsedTime() + "ms" + (m_stopped ? " (aborted)" : ""));
+    }
+
+    private long getElapsedTime(){
+        return (System.nanoTime() - m_startTime) / 1_000_000;
+    }
+
+    /** Aborts the search if hard time limit has passed */
+    private void checkTime(){
+        if(m_hardTimeLimit != NO_TIME_LIMIT && getElapsedTime() >= m_hardTimeLimit)
+            m_stopped = true;
+    }
+
+    /**
+     * Negamax <a href="https://www.chessprogramming.org/Principal_Variation_Search">principal variation search</a>.
+     * With good move ordering the first move is usually the best one, so it is searched with the full window and
+     * every other move only with a null window, which just proves it is not better. A move that turns out to be
+     * better is searched again with the full window to get its score.
+     * Scores are stored in the transposition table together with searched depth and whether they are exact or only
+     * a bound, because alpha-beta cuts the search as soon as a score falls outside of the window.
+     *
+     * <p>
+     * Two kinds of forward pruning make the tree smaller, both can be turned off:
+     * <a href="https://www.chessprogramming.org/Null_Move_Pruning">null move pruning</a> lets the opponent move twice,
+     * if the side to move still fails high after a reduced search the node is cut, and
+     * <a href="https://www.chessprogramming.org/Late_Move_Reductions">late move reductions</a> search quiet moves
+     * late in the ordering to a lower depth first, only moves that beat alpha get the full depth.
+     *
+     * @param depth             number of moves to look
+     * @param ply               number of moves made since the root, selects the move buffer
+     * @param alpha             minimum score that side to move is assured to get
+     * @param beta              maximum score that side to move can get before the opponent avoids this position
+     * @param isNullMoveAllowed false right after a null move, two null moves in a row would prove nothing
+     *
+     * @return score from the point of view of the side to move
+     */
+    private int search(int depth, int ply, int alpha, int beta, boolean isNullMoveAllowed){
+        if(++m_nodes % TIME_CHECK_INTERVAL == 0)
+            checkTime();
+        if(m_stopped)
+            return 0;
+        // Side that can repeat the position can also keep repeating it
+        if(m_position.isRepetition())
+            return 0;
+
+        // Mate distance pruning, nothing found here can be better than mating right now or worse than being mated now
+        alpha = Math.max(alpha, -(MATE_SCORE - ply));
+        beta = Math.min(beta, MATE_SCORE - ply - 1);
+        if(alpha >= beta)
+            return alpha;
+
+        // Check extension, forced lines are searched one ply deeper and a position in check is never evaluated
+        boolean isInCheck = m_position.isInCheck();
+        if(isInCheck)
+            depth = Math.max(depth, 0) + 1;
+
+        long key = m_position.getZobristKey();
+        long entry = m_transpositionTable.probe(key);
+        int tableMove = Position.NO_MOVE;
+        if(entry != 0){
+            tableMove = TranspositionTable.getMove(entry);
+            // Score can only be used if position was searched at least as deep and it is decisive for this window
+            if(TranspositionTable.getDepth(entry) >= depth){
+                int score = fromTableScore(TranspositionTable.getScore(entry), ply);
+                int bound = TranspositionTable.getBound(entry);
+                if(bound == TranspositionTable.EXACT || (bound == TranspositionTable.LOWER_BOUND && score >= beta)
+                   || (bound == TranspositionTable.UPPER_BOUND && score <= alpha))
+                    return score;
+            }
+        }
+
+        if(depth <= 0 || ply >= MAX_PLY){
+            return quiescence(ply, alpha, beta);
+        }
+
+        // Side with only pawns is often in zugzwang, then passing would be better than any move and null move fails
+        if(m_isNullMovePruning && isNullMoveAllowed && depth >= NULL_MOVE_DEPTH && beta - alpha == 1 && !isInCheck
+           && Math.abs(beta) < MATE_BOUND && m_position.hasNonPawnMaterial(m_position.getSideToMove())
+           && getStaticScore() >= beta){
+            int reduction = depth > 6 ? 3 : 2;
+            m_position.makeNullMove();
+            int score = -search(depth - 1 - reduction, ply + 1, -beta, -beta + 1, false);
+            m_position.unmakeNullMove();
+            if(m_stopped)
+                return 0;
+
+            if(score >= beta){
+                // Deep cutoffs are confirmed by searching real moves, in case the position is a zugzwang after all
+                if(depth >= NULL_MOVE_VERIFICATION_DEPTH)
+                    score = search(depth - 1 - reduction, ply, beta - 1, beta, false);
+                // Mate found after passing is not a real mate
+                if(score >= beta)
+                    return Math.min(score, MATE_BOUND);
+            }
+        }
+
+        int[] possibleMoves = m_moveBuffers[ply];
+        int movesCount = m_position.generateLegalMoves(possibleMoves);
+
+        // Game is finished
+        if(movesCount == 0){
+            // Side to move has been checkmated
+            if(m_position.isInCheck())
+                return -(MATE_SCORE - ply);
+            return 0;
+        }
+
+        scoreMoves(possibleMoves, m_moveScores[ply], movesCount, tableMove, ply);
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = Position.NO_MOVE;
+        for(int i = 0; i < movesCount; ++i){
+            int move = pickMove(possibleMoves, m_moveScores[ply], i, movesCount);
+            // Quiet moves that are not killers are the only ones with scores in this range
+            boolean isLateQuiet = i >= REDUCTION_MOVES && m_moveScores[ply][i] >= 0
+                                  && m_moveScores[ply][i] < KILLER_SCORE;
+            m_position.makeMove(move);
+            int score;
+            if(i == 0)
+                score = -search(depth - 1, ply + 1, -beta, -alpha, true);
+            else{
+                int reduction = 0;
+                if(m_isLateMoveReduction && isLateQuiet && depth >= REDUCTION_DEPTH && !isInCheck
+                   && !m_position.isInCheck())
+                    reduction = (i >= 2 * REDUCTION_MOVES && depth >= 6) ? 2 : 1;
+
+                score = -search(depth - 1 - reduction, ply + 1, -alpha - 1, -alpha, true);
+                // Reduced move that beats alpha is verified at full depth
+                if(reduction > 0 && score > alpha)
+                    score = -search(depth - 1, ply + 1, -alpha - 1, -alpha, true);
+                if(score > alpha && score < beta)
+                    score = -search(depth - 1, ply + 1, -beta, -alpha, true);
+            }
+            m_position.unmakeMove(move);
+            if(m_stopped)
+                return 0;
+
+            // Check if current move is better that previous ones
+            if(score > best){
+                best = score;
+                bestMove = move;
+            }
+            alpha = Math.max(alpha, score);
+            if(alpha >= beta){
+                if(!Position.isCapture(move) && !Position.isPromotion(move))
+                    updateQuietCutoff(move, depth, ply);
+                break;
+            }
+        }
+
+        int bound = TranspositionTable.EXACT;
+        if(best >= beta)
+            bound = TranspositionTable.LOWER_BOUND;
+        else if(best <= originalAlpha)
+            bound = TranspositionTable.UPPER_BOUND;
+        m_transpositionTable.store(key, bestMove, depth, bound, toTableScore(best, ply));
+        return best;
+    }
+
+    /**
+     * <a href="https://www.chessprogramming.org/Quiescence_Search">Quiescence search</a>, replaces the static
+     * evaluation at the end of the main search. Captures and promotions are searched until the position is quiet, so
+     * a position is never evaluated in the middle of an exchange. Side to move doesn't have to capture, the static
+     * evaluation (stand pat) is a bound of the score. Checks are left to the main search, searching every evasion
+     * here makes the quiescence tree many times bigger.
+     *
+     * @return score from the point of view of the side to move
+     */
+    private int quiescence(int ply, int alpha, int beta){
+        if(++m_quiescenceNodes % TIME_CHECK_INTERVAL == 0)
+            checkTime();
+        if(m_stopped)
+            return 0;
+
+        int standPat = getStaticScore();
+        if(ply >= MAX_PLY || standPat >= beta)
+            return standPat;
+        alpha = Math.max(alpha, standPat);
+
+        int[] possibleMoves = m_moveBuffers[ply];
+        int movesCount = m_position.generateLegalCaptures(possibleMoves);
+        scoreMoves(possibleMoves, m_moveScores[ply], movesCount, Position.NO_MOVE, ply);
+        int best = standPat;
+        for(int i = 0; i < movesCount; ++i){
+            int move = pickMove(possibleMoves, m_moveScores[ply], i, movesCount);
+            // Only captures losing material are left, they hardly ever change the score
+            if(m_moveScores[ply][i] < 0)
+                break;
+            // Delta pruning, skip captures that can't bring the score back to the window
+            int gain = getCapturedValue(move) + getPromotionGain(move) + DELTA_MARGIN;
+            if(standPat + gain <= alpha)
+                continue;
+
+            m_position.makeMove(move);
+            int score = -quiescence(ply + 1, -beta, -alpha);
+            m_position.unmakeMove(move);
+            if(m_stopped)
+                return 0;
+
+            best = Math.max(best, score);
+            alpha = Math.max(alpha, score);
+            if(alpha >= beta)
+                break;
+        }
+        return best;
+    }
+
+    /**
+     * Mate scores count plies from the root, but a position can be reached at different plies. Table keeps mate
+     * scores counted from the position itself instead.
+     */
+    private static int toTableScore(int score, int ply){
+        if(score > MATE_BOUND)
+            return score + ply;
+        if(score < -MATE_BOUND)
+            return score - ply;
+        return score;
+    }
+
+    private static int fromTableScore(int score, int ply){
+        if(score > MATE_BOUND)
+            return score - ply;
+        if(score < -MATE_BOUND)
+            return score + ply;
+        return score;
+    }
+
+    /** Returns static evaluation from the point of view of the side to move */
+    private int getStaticScore(){
+        int score = m_evaluator.getRating(m_position);
+        return m_position.getSideToMove() == Position.WHITE ? score : -score;
+    }
+
+    /**
+     * Scores moves for ordering: the transposition table move first, then captures and promotions by
+     * <a href="https://www.chessprogramming.org/MVV-LVA">MVV-LVA</a>, then killer moves, quiet moves by their
+     * history and last captures losing material. Only quiet moves have scores between 0 and KILLER_SCORE, only losing
+     * captures have negative scores.
+     */
+    private void scoreMoves(int[] moves, int[] scores, int count, int tableMove, int ply){
+        int[] killers = m_killers[ply];
+        for(int i = 0; i < count; ++i){
+            int move = moves[i];
+            int piece = m_position.getPiece(Position.getFrom(move));
+            if(move == tableMove)
+                scores[i] = TABLE_MOVE_SCORE;
+            else if(Position.isCapture(move) || Position.isPromotion(move)){
+                int attackerValue = Position.toType(piece).getValue();
+                int gain = getCapturedValue(move) + getPromotionGain(move);
+                // Capture of a less valuable piece that loses material goes after quiet moves, the less lost the sooner
+                int exchangeGain = attackerValue > gain ? m_position.getExchangeGain(move) : 0;
+                if(exchangeGain < 0)
+                    scores[i] = exchangeGain;
+                // Most valuable victim first, among captures of the same piece the least valuable attacker first
+                else scores[i] = CAPTURE_SCORE + gain * 16 - attackerValue / 100;
+            }else if(move == killers[0])
+                scores[i] = KILLER_SCORE + 1;
+            else if(move == killers[1])
+                scores[i] = KILLER_SCORE;
+            else scores[i] = m_history[piece][Position.getTo(move)];
+        }
+    }
+
+    /**
+     * Swaps the move with the highest score among moves from <code>first</code> on to <code>first</code>. Moves are
+     * sorted only as far as the search gets, after a cutoff the rest is never looked at.
+     *
+     * @return the move swapped to <code>first</code>
+     */
+    private static int pickMove(int[] moves, int[] scores, int first, int count){
+        int best = first;
+        for(int i = first + 1; i < count; ++i){
+            if(scores[i] > scores[best])
+                best = i;
+        }
+        int move = moves[best], score = scores[best];
+        moves[best] = moves[first];
+        scores[best] = scores[first];
+        moves[first] = move;
+        scores[first] = score;
+        return move;
+    }
+
+    /** Remembers a quiet move that caused a cutoff as a killer of its ply and raises its history */
+    private void updateQuietCutoff(int move, int depth, int ply){
+        int[] killers = m_killers[ply];
+        if(killers[0] != move){
+            killers[1] = killers[0];
+            killers[0] = move;
+        }
+
+        int[] history = m_history[m_position.getPiece(Position.getFrom(move))];
+        history[Position.getTo(move)] += depth * depth;
+        if(history[Position.getTo(move)] >= MAX_HISTORY){
+            for(int[] pieceHistory : m_history){
+                for(int square = 0; square < 64; ++square)
+                    pieceHistory[square] /= 2;
+            }
+        }
+    }
+
+    /** Returns material value of the piece captured by given move, 0 if it is not a capture */
+    private int getCapturedValue(int move){
+        if(Position.getFlag(move) == Position.EN_PASSANT)
+            return PieceAttributes.Type.PAWN.getValue();
+        if(!Position.isCapture(move))
+            return 0;
+        return Position.toType(m_position.getPiece(Position.getTo(move))).getValue();
+    }
+
+    /** Returns material gained by replacing the pawn with the promoted piece, 0 if given move is not a promotion */
+    private static int getPromotionGain(int move){
+        if(!Position.isPromotion(move))
+            return 0;
+        // White pieces have the same index as their type
+        return Position.toType(Position.getPromotionType(move)).getValue() - PieceAttributes.Type.PAWN.getValue();
+    }
+
+    /** Moves given move to the beginning of the list, nothing happens if the list doesn't contain it */
+    private static void moveToFront(int[] moves, int count, int move){
+        for(int i = 0; i < count; ++i){
+            if(moves[i] == move){
+                System.arraycopy(moves, 0, moves, 1, i);
+                moves[0] = move;
+                return;
+            }
+        }
+    }
+
+    /** Moves given move to given index of the list, it has to be there or after it. Moves in between are shifted */
+    private static void moveToIndex(int[] moves, int index, int move){
+        int current = indexOf(moves, moves.length, move);
+        System.arraycopy(moves, index, moves, index + 1, current - index);
+        moves[index] = move;
+    }
+
+    /** Returns index of given move in the list or -1 if the list doesn't contain it */
+    private static int indexOf(int[] moves, int count, int move){
+        for(int i = 0; i < count; ++i){
+            if(moves[i] == move)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Searches the position in deterministic mode with every number of threads of <code>CHECKED_THREADS</code>, each
+     * search with new tables
+     *
+     * @return true if all searches have found the same move with the same score
+     */
+    public static boolean checkDeterminism(String feNotation, int depth, int hashSizeInMegabytes){
+        int expectedMove = Position.NO_MOVE, expectedScore = 0;
+        boolean isCorrect = true;
+        for(int threads : CHECKED_THREADS){
+            SearchController search = new SearchController(new Position(feNotation),
+                                                            new TranspositionTable(hashSizeInMegabytes),
+                                                            new PawnHashTable(2));
+            search.setThreads(threads);
+            search.setDeterministic(true);
+            int move = search.findBestMove(depth, NO_TIME_LIMIT, NO_TIME_LIMIT);
+            System.out.println(threads + " threads: " + Position.toNotation(move) + " score " + search.getScore());
+            if(threads == CHECKED_THREADS[0]){
+                expectedMove = move;
+                expectedScore = search.getScore();
+            }else if(move != expectedMove || search.getScore() != expectedScore)
+                isCorrect = false;
+        }
+        System.out.println(isCorrect ? "All searches are the same" : "Searches differ");
+        return isCorrect;
+    }
+
+    /**
+     * Prints the best lines of a position after every iteration, so candidate moves of a game can be reviewed
+     * without the board. With <code>check</code> it checks that deterministic searches with different numbers of
+     * threads find the same move instead.
+     *
+     * @param args <code>[-lines K] [-threads N] [-hash MB] depth [FEN]</code> or
+     *             <code>[-hash MB] check depth [FEN]</code>, start position is used if FEN is not given
+     */
+    public static void main(String[] args){
+        CommandLine commandLine = new CommandLine(args, "-lines", "-threads", "-hash");
+        int lineCount = commandLine.getOption("-lines", 3);
+        int threads = commandLine.getOption("-threads", 1);
+        int hashSizeInMegabytes = commandLine.getOption("-hash", 64);
+        boolean isCheck = commandLine.getArgumentCount() > 0 && commandLine.getArgument(0).equals("check");
+        int first = isCheck ? 1 : 0;
+        if(first == commandLine.getArgumentCount())
+            throw new IllegalArgumentException("Depth is missing");
+
+        int depth = Integer.parseInt(commandLine.getArgument(first));
+        String feNotation = commandLine.getFeNotation(first + 1);
+        if(isCheck)
+            System.exit(checkDeterminism(feNotation, depth, hashSizeInMegabytes) ? 0 : 1);
+
+        SearchController search = new SearchController(new Position(feNotation),
+                                                        new TranspositionTable(hashSizeInMegabytes),
+                                                        new PawnHashTable(2));
+        search.setThreads(threads);
+        search.setVerbose(true);
+        search.analyze(depth, lineCount, NO_TIME_LIMIT, NO_TIME_LIMIT);
+    }
+}
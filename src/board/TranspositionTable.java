@@ -0,0 +1,103 @@
+package board;
+
+/**
+ * <a href="https://en.wikipedia.org/wiki/Transposition_table">Transposition table</a> of a fixed size.
+ * Every entry keeps packed data next to the full Zobrist key used to verify a hit:
+ * <pre>
+ * bits  0-15 best move
+ * bits 16-23 depth
+ * bits 24-25 bound type
+ * bits 26-31 age of the search that stored the entry
+ * bits 32-63 score
+ * </pre>
+ * Entries are grouped in buckets of two, a new entry replaces the one that has the lowest depth and is the oldest.
+ * Table is shared by all search threads.
+ */
+public class TranspositionTable extends LocklessHashTable{
+    public static final int EXACT = 1;
+    public static final int LOWER_BOUND = 2;
+    public static final int UPPER_BOUND = 3;
+
+    private static final int BUCKET_SIZE = 2;
+    private static final int AGE_MASK = 63;
+
+    /** Age of the current search, entries from older searches are replaced first */
+    private volatile int m_age = 0;
+
+    /**
+     * @param sizeInMegabytes memory used by the table, the number of entries is rounded down to a power of two
+     */
+    public TranspositionTable(int sizeInMegabytes){
+        super(sizeInMegabytes, BUCKET_SIZE);
+    }
+
+    public static int getMove(long entry){return (int) (entry & 0xFFFF);}
+
+    public static int getDepth(long entry){return (int) ((entry >>> 16) & 0xFF);}
+
+    public static int getBound(long entry){return (int) ((entry >>> 24) & 3);}
+
+    public static int getScore(long entry){return (int) (entry >>> 32);}
+
+    private static int getAge(long entry){return (int) ((entry >>> 26) & AGE_MASK);}
+
+    /** Has to be called before every search so entries from earlier searches can be told apart */
+    public void newSearch(){
+        m_age = (m_age + 1) & AGE_MASK;
+    }
+
+    @Override
+    public void clear(){
+        super.clear();
+        m_age = 0;
+    }
+
+    /**
+     * @return packed entry of given position or 0 if the position is not stored
+     */
+    public long probe(long key){
+        int index = (int) key & m_indexMask;
+        for(int i = index; i < index + BUCKET_SIZE; ++i){
+            long data = read(i, key);
+            if(data != 0)
+                return data;
+        }
+        return 0L;
+    }
+
+    /**
+     * Stores search result of a position.
+     *
+     * @param move  best move found or <code>Position.NO_MOVE</code>
+     * @param depth depth the position has been searched to
+     * @param bound EXACT, LOWER_BOUND if score failed high or UPPER_BOUND if it failed low
+     */
+    public void store(long key, int move, int depth, int bound, int score){
+        int age = m_age;
+        int index = (int) key & m_indexMask;
+        int replaced = index;
+        int lowestValue = Integer.MAX_VALUE;
+        for(int i = index; i < index + BUCKET_SIZE; ++i){
+            long data = m_data[i];
+            if(data == 0 || (m_keys[i] ^ data) == key){
+                replaced = i;
+                break;
+            }
+            // Older searches count as less deep
+            int value = getDepth(data) - 4 * ((age - getAge(data)) & AGE_MASK);
+            if(value < lowestValue){
+                lowestValue = value;
+                replaced = i;
+            }
+        }
+
+        // Keep the best move of the position if the new search did not find one
+        long replacedData = read(replaced, key);
+        if(move == Position.NO_MOVE && replacedData != 0)
+            move = getMove(replacedData);
+
+        long data = (move & 0xFFFF) | ((long) Math.min(Math.max(depth, 0), 255) << 16) | ((long) bound << 24)
+                    | ((long) age << 26) | ((long) score << 32);
+        write(replaced, key, data);
+    }
+}
@@ -0,0 +1,53 @@
+package board;
+
+import pieces.Piece;
+import pieces.PieceAttributes;
+import pieces.Pos;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random numbers for <a href="https://www.chessprogramming.org/Zobrist_Hashing">Zobrist hashing</a>.
+ * Key of a position is a xor of numbers of every piece on its square, side to move, castling rights and en passant
+ * file, so a move changes it with a few xors instead of hashing the whole board again.
+ */
+public class Zobrist{
+    /** Fixed seed so keys are the same in every run */
+    private static final long SEED = 0x2545F4914F6CDD1DL;
+
+    private static final long[][] PIECE_SQUARE = new long[12][64];
+    private static final long[] CASTLING = new long[16];
+    private static final long[] ENPASSANT_FILE = new long[8];
+    public static final long SIDE;
+
+    static{
+        SplittableRandom random = new SplittableRandom(SEED);
+        for(int piece = 0; piece < 12; ++piece){
+            for(int square = 0; square < 64; ++square)
+                PIECE_SQUARE[piece][square] = random.nextLong();
+        }
+        // No castling rights means no change to the key
+        for(int rights = 1; rights < 16; ++rights)
+            CASTLING[rights] = random.nextLong();
+        for(int file = 0; file < 8; ++file)
+            ENPASSANT_FILE[file] = random.nextLong();
+        SIDE = random.nextLong();
+    }
+
+    /** @param piece piece index as used by <code>Position</code> */
+    public static long getPieceKey(int piece, int square){return PIECE_SQUARE[piece][square];}
+
+    public static long getPieceKey(Piece piece, Pos pos){
+        int color = piece.getColor() == PieceAttributes.Color.WHITE ? Position.WHITE : Position.BLACK;
+        return PIECE_SQUARE[Position.pieceOf(color, piece.getType().ordinal())][pos.row() * 8 + pos.col()];
+    }
+
+    public static long getCastlingKey(int castlingRights){return CASTLING[castlingRights];}
+
+    /** @param square en passant square or -1 if there is none */
+    public static long getEnpassantKey(int square){
+        if(square == -1)
+            return 0L;
+        return ENPASSANT_FILE[square % 8];
+    }
+}
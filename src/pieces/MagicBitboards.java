@@ -0,0 +1,202 @@
+package pieces;
+
+import java.util.SplittableRandom;
+
+/**
+ * <a href="https://www.chessprogramming.org/Magic_Bitboards">Magic bitboards</a> for rooks, bishops and queens.
+ * Squares are numbered <code>row * 8 + col</code> like <code>BoardSquare</code>s, row 0 is the eighth rank.
+ * Pieces that can block a slider on given square are multiplied by a magic number, the highest bits of the product
+ * are an index to a table of precomputed attacks. Magics below were found by <code>main</code>, so loading the class
+ * only fills the tables.
+ */
+public class MagicBitboards{
+    /** Seed used by <code>main</code> to search for magics */
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+
+    private static final int[][] ROOK_DIRECTIONS = {{0, -1}, {0, 1}, {-1, 0}, {1, 0}};
+    private static final int[][] BISHOP_DIRECTIONS = {{-1, -1}, {-1, 1}, {1, -1}, {1, 1}};
+
+    private static final long[] ROOK_MAGICS = {
+            0x0080021620804001L, 0x0040001000200041L, 0x0200102200088040L, 0x4080040800821000L,
+            0x2200020004200810L, 0x4B00020C000D0008L, 0x01000C4183000600L, 0x2080010000402C80L,
+            0x8002800826864000L, 0x0410802000884000L, 0x0C01004010200100L, 0xC802001200084023L,
+            0x0202000A00102004L, 0x4010800200040080L, 0x8804000208048110L, 0x0C40800080004100L,
+            0xA2018880024004A0L, 0x0100908020004000L, 0x1010410010200101L, 0x2010008008008010L,
+            0x0A08010004110008L, 0x0802080104209040L, 0x0080040090010802L, 0x0280020000841069L,
+            0x080C400080248000L, 0x2048850100224008L, 0x00200800C0300040L, 0x11400D0100201000L,
+            0x0208040080800800L, 0x0060040080800200L, 0x0420010080800200L, 0x9008010200004084L,
+            0x0080002000400040L, 0x0420100040400020L, 0x0190130045002000L, 0x4010004402400800L,
+            0x0104080101001004L, 0x0000020080800400L, 0x0600420804008110L, 0x692C004482001524L,
+            0x0020803040008001L, 0x0020084030004000L, 0x0480200104450010L, 0x0190100025010008L,
+            0x0401008801110004L, 0x0809001400090046L, 0x2004889001040002L, 0x000803A24C020003L,
+            0x9000400080002080L, 0x0200401000200040L, 0x8299A00890008480L, 0x0224080010008480L,
+            0x0028002900102500L, 0x3101844020100801L, 0x1001000E00040300L, 0x0080110880440200L,
+            0x8100944080052101L, 0x0C00820040210012L, 0x0A20122000C10901L, 0x0620210004100109L,
+            0x0002002008041002L, 0x0002000104100802L, 0x8420500208011084L, 0x0001000020420081L
+    };
+    private static final long[] BISHOP_MAGICS = {
+            0x8049010808004080L, 0x20A09C0410404004L, 0x0010011200200000L, 0x00020A020A002000L,
+            0x0841104048189088L, 0x0051104210402001L, 0x02010090846004C1L, 0x2100220100A01080L,
+            0x0020100202440400L, 0x0C00202204010034L, 0x0000080808508200L, 0x0020022082028011L,
+            0xC000040420008010L, 0x1204382A30100020L, 0x0002850801900800L, 0x2880042212104440L,
+            0xA80810C090019200L, 0x0004C0208C2C0040L, 0x0008823014004088L, 0x0208004422022000L,
+            0x4242889400A00618L, 0x400A000109012002L, 0x0001280084100222L, 0x0440400890441040L,
+            0x0020083110108108L, 0x0408840022440800L, 0x8920900108002020L, 0x8044010050100408L,
+            0x0991004104004051L, 0x0008020006411880L, 0x0501220204008402L, 0x8200920004210400L,
+            0x82A1044001111080L, 0x0101040384101000L, 0x0022011000010048L, 0x2011020082080080L,
+            0x0000501040040040L, 0x0210010201404040L, 0x0010040041A08208L, 0x8088024148210300L,
+            0x0000884808204082L, 0xC824011403041001L, 0x0002008024002080L, 0xF4D0011144019800L,
+            0x0200210122000400L, 0x8102601400200501L, 0x0004080801280442L, 0x0C0242004112D200L,
+            0x1014240404044000L, 0x0103090082200020L, 0x0C0001041104004CL, 0x4080805084041020L,
+            0x080A102044240002L, 0x0000401102448484L, 0x100BA00114010000L, 0xA410022204242600L,
+            0x182A010882100200L, 0x1020004202100200L, 0x90011C0034020800L, 0x20E1000000208800L,
+            0x2000004090A02204L, 0x0001000920A80880L, 0x1200206089A10100L, 0x0110541004420023L
+    };
+
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final long[][] ROOK_ATTACKS = new long[64][];
+
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final long[][] BISHOP_ATTACKS = new long[64][];
+
+    static{
+        for(int square = 0; square < 64; ++square){
+            ROOK_MASKS[square] = relevantBlockers(square, ROOK_DIRECTIONS);
+            ROOK_SHIFTS[square] = 64 - Long.bitCount(ROOK_MASKS[square]);
+            ROOK_ATTACKS[square] = fillTable(square, ROOK_DIRECTIONS, ROOK_MASKS[square], ROOK_MAGICS[square]);
+
+            BISHOP_MASKS[square] = relevantBlockers(square, BISHOP_DIRECTIONS);
+            BISHOP_SHIFTS[square] = 64 - Long.bitCount(BISHOP_MASKS[square]);
+            BISHOP_ATTACKS[square] = fillTable(square, BISHOP_DIRECTIONS, BISHOP_MASKS[square],
+                                               BISHOP_MAGICS[square]);
+        }
+    }
+
+    /**
+     * @param occupancy all pieces on the board, the first piece on every ray is included in attacks
+     */
+    public static long getRookAttacks(int square, long occupancy){
+        return ROOK_ATTACKS[square][(int) (((occupancy & ROOK_MASKS[square]) * ROOK_MAGICS[square])
+                                           >>> ROOK_SHIFTS[square])];
+    }
+
+    public static long getBishopAttacks(int square, long occupancy){
+        return BISHOP_ATTACKS[square][(int) (((occupancy & BISHOP_MASKS[square]) * BISHOP_MAGICS[square])
+                                             >>> BISHOP_SHIFTS[square])];
+    }
+
+    public static long getQueenAttacks(int square, long occupancy){
+        return getRookAttacks(square, occupancy) | getBishopAttacks(square, occupancy);
+    }
+
+    /** Squares where a piece can block a slider, pieces on the edge of the board never block anything */
+    private static long relevantBlockers(int square, int[][] directions){
+        long mask = 0L;
+        for(int[] direction : directions){
+            int row = square / 8 + direction[0], col = square % 8 + direction[1];
+            while(row + direction[0] >= 0 && row + direction[0] < 8 && col + direction[1] >= 0
+                  && col + direction[1] < 8){
+                mask |= 1L << (row * 8 + col);
+                row += direction[0];
+                col += direction[1];
+            }
+        }
+        return mask;
+    }
+
+    /** Returns all subsets of the mask */
+    private static long[] subsets(long mask){
+        long[] subsets = new long[1 << Long.bitCount(mask)];
+        long occupancy = 0L;
+        int count = 0;
+        do{
+            subsets[count++] = occupancy;
+            occupancy = (occupancy - mask) & mask;
+        }while(occupancy != 0);
+        return subsets;
+    }
+
+    private static long[] fillTable(int square, int[][] directions, long mask, long magic){
+        int shift = 64 - Long.bitCount(mask);
+        long[] table = new long[1 << Long.bitCount(mask)];
+        for(long occupancy : subsets(mask))
+            table[(int) ((occupancy * magic) >>> shift)] = slidingAttacks(square, occupancy, directions);
+        return table;
+    }
+
+    /**
+     * Finds a magic of one square, a random number that maps every blockers subset to an index of the table without
+     * two subsets with different attacks sharing an index
+     */
+    private static long findMagic(int square, int[][] directions, SplittableRandom random){
+        long mask = relevantBlockers(square, directions);
+        long[] occupancies = subsets(mask);
+        long[] attacks = new long[occupancies.length];
+        for(int i = 0; i < occupancies.length; ++i)
+            attacks[i] = slidingAttacks(square, occupancies[i], directions);
+
+        int shift = 64 - Long.bitCount(mask);
+        long[] table = new long[occupancies.length];
+        // Attempt that has last written an entry, so the table doesn't have to be cleared after a failed magic
+        int[] usedBy = new int[occupancies.length];
+        for(int attempt = 1; ; ++attempt){
+            long magic = random.nextLong() & random.nextLong() & random.nextLong();
+            if(Long.bitCount((mask * magic) & 0xFF00000000000000L) < 6)
+                continue;
+
+            boolean isValid = true;
+            for(int i = 0; i < occupancies.length && isValid; ++i){
+                int index = (int) ((occupancies[i] * magic) >>> shift);
+                if(usedBy[index] != attempt){
+                    usedBy[index] = attempt;
+                    table[index] = attacks[i];
+                }else isValid = table[index] == attacks[i];
+            }
+            if(isValid)
+                return magic;
+        }
+    }
+
+    /** Walks rays square by square, used only to fill the tables */
+    private static long slidingAttacks(int square, long occupancy, int[][] directions){
+        long attacks = 0L;
+        for(int[] direction : directions){
+            int row = square / 8 + direction[0], col = square % 8 + direction[1];
+            while(row >= 0 && row < 8 && col >= 0 && col < 8){
+                long squareBit = 1L << (row * 8 + col);
+                attacks |= squareBit;
+                if((occupancy & squareBit) != 0)
+                    break;
+                row += direction[0];
+                col += direction[1];
+            }
+        }
+        return attacks;
+    }
+
+    /** Searches for new magics and prints them in the form of the tables above */
+    public static void main(String[] args){
+        SplittableRandom random = new SplittableRandom(SEED);
+        long[] rookMagics = new long[64], bishopMagics = new long[64];
+        for(int square = 0; square < 64; ++square){
+            rookMagics[square] = findMagic(square, ROOK_DIRECTIONS, random);
+            bishopMagics[square] = findMagic(square, BISHOP_DIRECTIONS, random);
+        }
+        printMagics("ROOK_MAGICS", rookMagics);
+        printMagics("BISHOP_MAGICS", bishopMagics);
+    }
+
+    private static void printMagics(String name, long[] magics){
+        StringBuilder output = new StringBuilder("    private static final long[] " + name + " = {");
+        for(int square = 0; square < 64; ++square){
+            if(square % 4 == 0)
+                output.append("\n            ");
+            output.append(String.format("0x%016XL", magics[square]));
+            if(square < 63)
+                output.append(square % 4 == 3 ? "," : ", ");
+        }
+        System.out.println(output.append("\n    };"));
+    }
+}
@@ -1,10 +1,7 @@
 package pieces;
 
-import board.BoardSquare;
-
 import javax.imageio.ImageIO;
 import java.awt.*;
-import java.util.ArrayList;
 import java.util.Objects;
 
 
@@ -56,30 +53,12 @@ public abstract class Piece{
         }
     }
 
-    /**
-     * Calculate possible moves of this piece
-     * Function returns moves that might be illegal due to possible checks
-     *
-     * @param boardSquares current board position
-     *
-     * @return return list of possible moves
-     */
-    public abstract ArrayList<Pos> calculatePossibleMoves(BoardSquare[][] boardSquares);
-
-
     public void movePiece(int row, int col){
         this.m_pos = new Pos(row, col);
         m_isFirstMove = false;
         ++m_moveCount;
     }
 
-    public void unmakeMove(int row, int col){
-        this.m_pos = new Pos(row, col);
-        --m_moveCount;
-        if(m_moveCount == 0)
-            m_isFirstMove = true;
-    }
-
     public boolean getFirstMove(){return m_isFirstMove;}
 
     public Pos getPos(){return m_pos;}